@@ -0,0 +1,339 @@
+/**
+ * GenerationBenchmark
+ * Measures how grid generation scales with the number of columns, the number
+ * of column types and minification.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+/**
+ * Runs each benchmark over a matrix of column counts, column type counts and
+ * minify settings, reporting throughput, characters written per operation and
+ * bytes allocated per operation. Allocation is measured with the per-thread
+ * allocation counter of the HotSpot ThreadMXBean, so it is only reported on
+ * JVMs that support it. Allocation by other threads, such as the parallel
+ * renderer's, is not counted.
+ *
+ * Run from the repository root with:
+ *
+ * <pre>
+ * javac -d build src/com/adamheins/bootstrap_grid_extension_generator/*.java \
+ *     bench/com/adamheins/bootstrap_grid_extension_generator/*.java
+ * java -cp build com.adamheins.bootstrap_grid_extension_generator.GenerationBenchmark
+ * </pre>
+ *
+ * Pass crossover as an argument to only compare serial and parallel rendering
+ * across grid sizes, to find where parallel rendering starts to pay off. Pass
+ * check to only check the size of the default minified grid, the minified
+ * forms of values that are easy to get wrong and that failed writes leave no
+ * files behind, failing if any check fails.
+ */
+public class GenerationBenchmark {
+
+    // Parameter matrix.
+    private static final int[] COLUMN_COUNTS = { 12, 100, 1000 };
+    private static final int[] BREAKPOINT_COUNTS = { 4, 20 };
+    private static final boolean[] MINIFY = { false, true };
+
+    // Grid sizes compared by the crossover benchmark.
+    private static final int[] CROSSOVER_COLUMN_COUNTS = { 12, 25, 50, 100, 200 };
+    private static final int[] CROSSOVER_BREAKPOINT_COUNTS = { 4, 20 };
+
+    // Column types of the default grid, and its minified size in bytes with
+    // 20 columns.
+    private static final Object[][] DEFAULT_DIVISION_DATA = { { "col-xs", "0px" }, { "col-sm", "768px" },
+            { "col-md", "992px" }, { "col-lg", "1200px" } };
+    private static final long DEFAULT_MINIFIED_SIZE = 9673;
+
+    // Values and their expected minified forms.
+    private static final String[][] MINIFIED_VALUES = { { "0px", "0" }, { "0.50em", ".5em" },
+            { "rgba(0, 0, 0, 0.50)", "rgba(0,0,0,.5)" }, { "url(/img/01.png)", "url(/img/01.png)" },
+            { "url(img/2.50x.png) no-repeat", "url(img/2.50x.png) no-repeat" }, { "01.png", "01.png" },
+            { "calc(0px + 5%)", "calc(0px + 5%)" }, { "calc(var(--gap) + 0px)", "calc(var(--gap) + 0px)" },
+            { "max(0em, min(0px, 10%)) 0px", "max(0em,min(0px,10%)) 0" } };
+
+    // Time spent warming up and measuring each benchmark, in nanoseconds.
+    private static final long WARMUP_NANOS = 1000000000L;
+    private static final long MEASURE_NANOS = 2000000000L;
+
+    // Column properties used for every benchmark.
+    private static final Object[][] PROPERTY_DATA = { { "position", "relative" }, { "min-height", "1px" },
+            { "padding-right", "0px" }, { "padding-left", "0px" }, { "float", "left" }, { "width", "100%" } };
+
+    // Generator under test.
+    private final BootstrapGridExtensionFileGenerator generator = new BootstrapGridExtensionFileGenerator();
+
+    // Allocation counter, or null if not supported.
+    private final com.sun.management.ThreadMXBean threadBean;
+
+
+    /**
+     * Constructor.
+     */
+    public GenerationBenchmark() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+        }
+    }
+
+
+    /**
+     * A single benchmarked operation.
+     */
+    interface Operation {
+
+        /**
+         * Run the operation once, writing to the given writer.
+         */
+        void run(Writer out) throws IOException;
+    }
+
+
+    /**
+     * Writer that discards its output, counting the characters written.
+     */
+    static class CountingWriter extends Writer {
+
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+
+    /**
+     * Create column type table data with the given number of rows. The first
+     * column type has a width of zero, the rest are media queries.
+     */
+    static Object[][] divisionData(int breakpoints) {
+        Object[][] data = new Object[breakpoints][];
+        for (int i = 0; i < breakpoints; i++)
+            data[i] = new Object[] { "col-" + i, (i * 100) + "px" };
+        return data;
+    }
+
+
+    /**
+     * Warm up and then measure an operation, printing the results.
+     */
+    void measure(String name, String params, Operation op) throws IOException {
+
+        CountingWriter out = new CountingWriter();
+
+        // Warm up.
+        long end = System.nanoTime() + WARMUP_NANOS;
+        while (System.nanoTime() < end)
+            op.run(out);
+
+        // Measure.
+        long ops = 0;
+        out.count = 0;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        end = start + MEASURE_NANOS;
+        long now;
+        do {
+            op.run(out);
+            ops++;
+        } while ((now = System.nanoTime()) < end);
+        long allocated = allocatedBytes() - allocatedBefore;
+
+        double seconds = (now - start) / 1e9;
+        System.out.printf("%-22s %-32s %12.1f ops/s %12d chars/op %14s B/op%n", name, params, ops / seconds,
+                out.count / ops, threadBean == null ? "n/a" : String.valueOf(allocated / ops));
+    }
+
+
+    /**
+     * @return Bytes allocated so far by the current thread, or zero if not
+     *         supported.
+     */
+    private long allocatedBytes() {
+        return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+
+    /**
+     * Run every benchmark over the full parameter matrix.
+     */
+    void runAll() throws IOException {
+        for (final int columns : COLUMN_COUNTS) {
+            for (final int breakpoints : BREAKPOINT_COUNTS) {
+                for (final boolean minify : MINIFY) {
+                    final GridSpec spec = GridSpec.fromTableData(PROPERTY_DATA, divisionData(breakpoints),
+                            columns, minify);
+                    final CssFormat f = CssFormat.of(minify);
+                    final String[] percentages = PercentageTable.get(columns, generator.getPrecision(), f);
+                    String params = "columns=" + columns + " types=" + breakpoints + " minify=" + minify;
+
+                    measure("generate", params, new Operation() {
+                        public void run(Writer out) throws IOException {
+                            generator.generate(spec, out);
+                        }
+                    });
+
+                    measure("printInitProperties", params, new Operation() {
+                        public void run(Writer out) throws IOException {
+                            CssBuffer buf = new CssBuffer(out);
+                            generator.printInitProperties(buf, f, spec);
+                            buf.flush();
+                        }
+                    });
+
+                    measure("printColumnProperties", params, new Operation() {
+                        public void run(Writer out) throws IOException {
+                            CssBuffer buf = new CssBuffer(out);
+                            generator.printColumnProperties(buf, f, "col-md", percentages, true);
+                            buf.flush();
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Compare serial and parallel rendering of the whole grid across grid
+     * sizes.
+     */
+    void runCrossover() throws IOException {
+        final BootstrapGridExtensionFileGenerator serial = new BootstrapGridExtensionFileGenerator(
+                generator.getPrecision(), false, Integer.MAX_VALUE);
+        final BootstrapGridExtensionFileGenerator parallel = new BootstrapGridExtensionFileGenerator(
+                generator.getPrecision(), false, 0);
+
+        for (int columns : CROSSOVER_COLUMN_COUNTS) {
+            for (int breakpoints : CROSSOVER_BREAKPOINT_COUNTS) {
+                final GridSpec spec = GridSpec.fromTableData(PROPERTY_DATA, divisionData(breakpoints), columns,
+                        false);
+                String params = "columns=" + columns + " types=" + breakpoints + " rules="
+                        + BootstrapGridExtensionFileGenerator.countRules(breakpoints, columns);
+
+                measure("generate-serial", params, new Operation() {
+                    public void run(Writer out) throws IOException {
+                        serial.generate(spec, out);
+                    }
+                });
+
+                measure("generate-parallel", params, new Operation() {
+                    public void run(Writer out) throws IOException {
+                        parallel.generate(spec, out);
+                    }
+                });
+            }
+        }
+    }
+
+
+    /**
+     * Check the size of the default minified grid and the minified forms of
+     * values.
+     *
+     * @throws IllegalStateException
+     *             If any check fails.
+     */
+    void runChecks() throws IOException {
+        GridSpec spec = GridSpec.fromTableData(PROPERTY_DATA, DEFAULT_DIVISION_DATA, 20, true);
+        long size = generator.computeSize(spec);
+        if (size != DEFAULT_MINIFIED_SIZE)
+            throw new IllegalStateException("Default minified grid is " + size + " bytes, expected "
+                    + DEFAULT_MINIFIED_SIZE);
+
+        CountingWriter out = new CountingWriter();
+        generator.generate(spec, out);
+        if (out.count != DEFAULT_MINIFIED_SIZE)
+            throw new IllegalStateException("Default minified grid renders " + out.count
+                    + " characters, expected " + DEFAULT_MINIFIED_SIZE);
+
+        for (String[] value : MINIFIED_VALUES) {
+            String minified = CssFormat.MINIFIED.value(value[0]);
+            if (!minified.equals(value[1]))
+                throw new IllegalStateException("Minified " + value[0] + " as " + minified + ", expected "
+                        + value[1]);
+        }
+        checkFailedPrecompressedWrite();
+        System.out.println("All checks passed");
+    }
+
+
+    /**
+     * Check that a failed write of a file and its compressed copy leaves
+     * neither file, nor any temporary file, behind.
+     */
+    private static void checkFailedPrecompressedWrite() throws IOException {
+        File directory = Files.createTempDirectory("check").toFile();
+        File file = new File(directory, "grid.css");
+        try {
+            PrecompressedOutputStream out = new PrecompressedOutputStream(file);
+            try {
+                out.write(new byte[] { 'a' });
+                out.write(new byte[1], 0, 2);
+                throw new IllegalStateException("Write past the end of an array did not fail");
+            } catch (IndexOutOfBoundsException e) {
+                // The failed write being checked.
+            } finally {
+                out.close();
+            }
+
+            String[] left = directory.list();
+            if (left.length != 0)
+                throw new IllegalStateException("Failed write left files behind: " + Arrays.toString(left));
+        } finally {
+            for (File left : directory.listFiles())
+                left.delete();
+            directory.delete();
+        }
+    }
+
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            - crossover to only run the crossover benchmark, or check to
+     *            only run the checks.
+     */
+    public static void main(String[] args) throws IOException {
+        GenerationBenchmark benchmark = new GenerationBenchmark();
+        if (args.length > 0 && args[0].equals("check")) {
+            benchmark.runChecks();
+            return;
+        }
+        if (args.length == 0 || !args[0].equals("crossover"))
+            benchmark.runAll();
+        benchmark.runCrossover();
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * AtomicFile
+ * Replaces files so that readers see either the old or the new content, never
+ * part of either.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * New content is written to a temporary file in the same directory as the
+ * target, forced to disk and then renamed over the target. If anything fails
+ * the temporary file is deleted and the target is left as it was.
+ */
+final class AtomicFile {
+
+    // Suffix of temporary files.
+    private static final String TEMP_SUFFIX = ".tmp";
+
+
+    /**
+     * Not instantiable.
+     */
+    private AtomicFile() {
+    }
+
+
+    /**
+     * Replace a file with the given blocks of content, in order. Each buffer
+     * is written from its position to its limit. Direct buffers are written
+     * without being copied.
+     *
+     * @param target
+     *            - File to replace.
+     * @param blocks
+     *            - Content of the file.
+     * @throws IOException
+     *             If the file cannot be written. The target is unchanged.
+     */
+    static void write(File target, ByteBuffer... blocks) throws IOException {
+        write(target, 0, blocks);
+    }
+
+
+    /**
+     * Replace a file with the start of its current content followed by the
+     * given blocks, in order. The start is copied from the file as it is when
+     * this is called.
+     *
+     * @param target
+     *            - File to replace.
+     * @param prefixLength
+     *            - Number of bytes at the start of the file to keep.
+     * @param blocks
+     *            - Content of the file after the kept bytes.
+     * @throws IOException
+     *             If the file cannot be written or is shorter than the bytes
+     *             to keep, or the thread is interrupted. The target is
+     *             unchanged.
+     */
+    static void write(File target, long prefixLength, ByteBuffer... blocks) throws IOException {
+        File temp = createTemp(target);
+        try {
+            FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.WRITE);
+            try {
+                if (prefixLength > 0)
+                    copyPrefix(target, channel, prefixLength);
+
+                // A gathering write may write only part of the blocks.
+                int first = 0;
+                while (first < blocks.length) {
+                    channel.write(blocks, first, blocks.length - first);
+                    while (first < blocks.length && !blocks[first].hasRemaining())
+                        first++;
+                }
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+
+            // A cancelled write leaves the target as it was.
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Write cancelled");
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        } catch (RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        commit(temp, target);
+    }
+
+
+    /**
+     * Copy the start of a file to the start of a channel, leaving the channel
+     * positioned after it.
+     */
+    private static void copyPrefix(File source, FileChannel channel, long length) throws IOException {
+        FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+        try {
+            long copied = 0;
+            while (copied < length) {
+                long n = channel.transferFrom(in, copied, length - copied);
+                if (n <= 0)
+                    throw new IOException(source + " is shorter than the " + length + " bytes to keep");
+                copied += n;
+            }
+        } finally {
+            in.close();
+        }
+        channel.position(length);
+    }
+
+
+    /**
+     * Create an empty temporary file next to a target file.
+     *
+     * @param target
+     *            - File that the temporary file will replace.
+     * @return The temporary file.
+     */
+    static File createTemp(File target) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        return File.createTempFile("." + target.getName() + "-", TEMP_SUFFIX, directory);
+    }
+
+
+    /**
+     * Rename a complete temporary file over its target. The temporary file
+     * must already be forced to disk. It is deleted if it cannot be renamed.
+     *
+     * @param temp
+     *            - The temporary file.
+     * @param target
+     *            - File to replace.
+     */
+    static void commit(File temp, File target) throws IOException {
+        try {
+            try {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // Some file systems cannot rename atomically, replace instead.
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+    }
+}
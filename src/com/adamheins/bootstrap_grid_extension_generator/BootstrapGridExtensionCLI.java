@@ -0,0 +1,571 @@
+/**
+ * Command line interface for Bootstrap Grid Extension Generator
+ * Generates css files for many grid spec files in a single run, without
+ * starting the GUI.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.management.JMException;
+
+public class BootstrapGridExtensionCLI {
+
+    // Usage message.
+    private static final String USAGE = "Usage: java -cp Bootstrap-Grid-Extension-Generator.jar "
+            + BootstrapGridExtensionCLI.class.getName() + " [-j threads] [-o output-dir] [-c cache-dir] [-p digits]"
+            + " [-O] [-z] [-w] [-m bytes] [-M metrics-file] [-V columns,... [-B]] [-S]\n"
+            + "    spec-or-dir... [@manifest]\n"
+            + "  spec-or-dir   a " + GridSpecFile.EXTENSION + " spec file, or a directory of them\n"
+            + "  @manifest     a text file listing spec files, one per line\n"
+            + "  -j threads    number of specs to generate concurrently (default: number of processors)\n"
+            + "  -o output-dir directory to write css files to (default: next to each spec)\n"
+            + "  -c cache-dir  directory to keep generated stylesheets in between runs\n"
+            + "  -p digits     decimal places to round percentages to (default: "
+            + BootstrapGridExtensionFileGenerator.DEFAULT_PRECISION + ")\n"
+            + "  -O            prune and compact rules to reduce output size, reporting bytes saved\n"
+            + "  -z            also write a gzip compressed copy of each css file\n"
+            + "  -w            keep running and regenerate specs whenever they change (not with -c, -z, -m,\n"
+            + "                -M, -V or -S)\n"
+            + "  -m bytes      fail specs whose css file would be larger than this, without generating them\n"
+            + "  -M metrics-file\n"
+            + "                write generation metrics when done, as JSON if the file name ends in .json and\n"
+            + "                in the Prometheus text format otherwise\n"
+            + "  -V columns,...\n"
+            + "                generate a variant of each spec for every number of columns, named like\n"
+            + "                grid-12.css, instead of the spec's own number (not with -c or -z)\n"
+            + "  -B            generate both a pretty and a minified file, named like grid-12.min.css, of\n"
+            + "                each variant\n"
+            + "  -S            split each css file into a core file, a file for each media query and a\n"
+            + "                manifest listing them (not with -c, -z, -O or -V)";
+
+    // Exit statuses.
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    // Nanoseconds in a millisecond.
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    // Number of concurrent generation jobs.
+    private final int threads;
+
+    // Directory to write output to, or null to write next to each spec.
+    private final File outputDirectory;
+
+    // Stream that results are reported to.
+    private final PrintStream report;
+
+    // Generator and the cache in front of it, shared by all jobs.
+    private final BootstrapGridExtensionFileGenerator generator;
+    private final StylesheetCache cache;
+
+    // Largest allowed size of a css file in bytes.
+    private final long maxSize;
+
+    // True if compressed copies of each css file should be written.
+    private final boolean precompress;
+
+    // Unoptimized generator to compare output sizes against, or null if not
+    // optimizing.
+    private final BootstrapGridExtensionFileGenerator baseline;
+
+    // Generator of split output, or null to generate single files.
+    private SplitGenerator splitGenerator;
+
+    // Column counts and minification of the variants generated of each spec,
+    // or null to generate each spec as is. Null minification means that of
+    // the spec.
+    private int[] variantColumns;
+    private boolean[] variantMinify;
+
+
+    /**
+     * Constructor.
+     *
+     * @param threads
+     *            - Number of specs to generate concurrently.
+     * @param outputDirectory
+     *            - Directory to write output to, or null to write next to
+     *            each spec.
+     * @param cacheDirectory
+     *            - Directory to keep generated stylesheets in between runs, or
+     *            null to only cache them for this run.
+     * @param precision
+     *            - Number of decimal places percentages are rounded to.
+     * @param optimize
+     *            - True if rules should be pruned and compacted to reduce the
+     *            output size.
+     * @param precompress
+     *            - True if compressed copies of each css file should be
+     *            written.
+     * @param maxSize
+     *            - Largest allowed size of a css file in bytes, or
+     *            Long.MAX_VALUE for no limit.
+     * @param report
+     *            - Stream that results are reported to.
+     */
+    public BootstrapGridExtensionCLI(int threads, File outputDirectory, File cacheDirectory, int precision,
+            boolean optimize, boolean precompress, long maxSize, PrintStream report) {
+        this.threads = threads;
+        this.outputDirectory = outputDirectory;
+        this.report = report;
+        this.precompress = precompress;
+        this.maxSize = maxSize;
+        this.generator = new BootstrapGridExtensionFileGenerator(precision, optimize);
+        this.cache = new StylesheetCache(generator, StylesheetCache.DEFAULT_MAX_BYTES, cacheDirectory);
+        this.baseline = optimize ? new BootstrapGridExtensionFileGenerator(precision) : null;
+    }
+
+
+    /**
+     * Generate variants of each spec rather than the spec itself. Variants
+     * are not cached.
+     *
+     * @param columnCounts
+     *            - Number of columns of each variant.
+     * @param minify
+     *            - Minification settings to generate each number of columns
+     *            with, or null to use that of the spec.
+     */
+    public void setVariants(int[] columnCounts, boolean[] minify) {
+        this.variantColumns = columnCounts;
+        this.variantMinify = minify;
+    }
+
+
+    /**
+     * Split each css file into a core file, a file for each media query and a
+     * manifest, see {@link SplitGenerator}. Split output is not cached.
+     */
+    public void setSplit() {
+        this.splitGenerator = new SplitGenerator(generator);
+    }
+
+
+    /**
+     * Generate a css file for each spec file, reporting the outcome and time
+     * taken for each one in the order they were given.
+     *
+     * @param specs
+     *            - Spec files to generate.
+     * @return The number of specs that failed to generate.
+     */
+    public int run(List<File> specs) {
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, specs.size())));
+        long start = System.nanoTime();
+        int failures = 0;
+
+        try {
+            // Queue up every spec.
+            List<Future<Result>> results = new ArrayList<Future<Result>>(specs.size());
+            for (File spec : specs)
+                results.add(pool.submit(new Job(spec)));
+
+            // Report results in order as they become available.
+            for (Future<Result> future : results) {
+                Result result;
+                try {
+                    result = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+
+                if (result.error == null) {
+                    report.printf("OK    %s -> %s (%.2f ms%s)%n", result.spec, result.output, result.nanos
+                            / NANOS_PER_MILLI, result.notes);
+                } else {
+                    report.printf("FAIL  %s: %s (%.2f ms)%n", result.spec, result.error, result.nanos
+                            / NANOS_PER_MILLI);
+                    failures++;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        report.printf("%d specs, %d failed, %d cache hits, %.2f ms total%n", specs.size(), failures, cache.getHits(),
+                (System.nanoTime() - start) / NANOS_PER_MILLI);
+        return failures;
+    }
+
+
+    /**
+     * Generates a single spec file.
+     */
+    private class Job implements Callable<Result> {
+
+        private final File spec;
+
+        Job(File spec) {
+            this.spec = spec;
+        }
+
+        @Override
+        public Result call() {
+            long start = System.nanoTime();
+            try {
+                GridSpecFile grid = GridSpecFile.read(spec);
+                File output = grid.getOutputFile(outputDirectory);
+
+                if (variantColumns != null)
+                    return generateVariants(grid, output, start);
+
+                // Check the size before doing any work on the stylesheet.
+                if (maxSize < Long.MAX_VALUE) {
+                    long size = generator.computeSize(grid.getSpec());
+                    if (size > maxSize)
+                        return new Result(spec, null, "", "css file would be " + size + " bytes, over the limit of "
+                                + maxSize, System.nanoTime() - start);
+                }
+
+                if (splitGenerator != null) {
+                    List<File> files = splitGenerator.generate(grid.getSpec(), output.getPath());
+                    return new Result(spec, output, ", " + (files.size() - 2) + " media files and manifest", null,
+                            System.nanoTime() - start);
+                }
+
+                StringBuilder notes = new StringBuilder();
+
+                if (precompress) {
+                    // Write the css and its compressed copy from the cached
+                    // stylesheet, unless both are up to date. The copy may be
+                    // left from an earlier spec if the css was since written
+                    // without it, so its content is checked too.
+                    byte[] css = cache.render(grid.getSpec());
+                    File gzipFile = PrecompressedOutputStream.getGzipFile(output);
+                    if (StylesheetCache.hasContent(output, css)
+                            && PrecompressedOutputStream.hasContent(gzipFile, css)) {
+                        notes.append(", unchanged, gzip ").append(gzipFile.length()).append(" bytes");
+                    } else {
+                        PrecompressedOutputStream out = new PrecompressedOutputStream(output);
+                        try {
+                            out.write(css);
+                        } finally {
+                            out.close();
+                        }
+                        notes.append(", gzip ").append(out.getGzipSize()).append(" bytes");
+                    }
+                } else if (!cache.generate(grid.getSpec(), output.getPath())) {
+                    notes.append(", unchanged");
+                }
+                long nanos = System.nanoTime() - start;
+
+                // Compare the optimized size with the unoptimized size.
+                if (baseline != null) {
+                    CountingOutputStream counter = new CountingOutputStream(null);
+                    baseline.generate(grid.getSpec(), counter, BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET);
+                    notes.append(", saved ").append(counter.getCount() - output.length()).append(" bytes");
+                }
+
+                return new Result(spec, output, notes.toString(), null, nanos);
+            } catch (Exception e) {
+                String message = e.getMessage() == null ? e.toString() : e.getMessage();
+                return new Result(spec, null, "", message, System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Generate every variant of the spec, once all are within the size
+         * limit.
+         */
+        private Result generateVariants(GridSpecFile grid, File output, long start) throws IOException {
+            boolean[] minify = variantMinify != null ? variantMinify : new boolean[] { grid.getSpec().isMinify() };
+
+            if (maxSize < Long.MAX_VALUE) {
+                for (int numColumns : variantColumns) {
+                    for (boolean m : minify) {
+                        long size = generator.computeSize(grid.getSpec().withShape(numColumns, m));
+                        if (size > maxSize)
+                            return new Result(spec, null, "", "css file of " + numColumns + " columns would be "
+                                    + size + " bytes, over the limit of " + maxSize, System.nanoTime() - start);
+                    }
+                }
+            }
+
+            List<File> files = generator.generateVariants(grid.getSpec(), variantColumns, minify, output.getPath());
+            String notes = files.size() > 1 ? ", and " + (files.size() - 1) + " more variants" : "";
+            return new Result(spec, files.get(0), notes, null, System.nanoTime() - start);
+        }
+    }
+
+
+    /**
+     * Outcome of generating a single spec file.
+     */
+    private static class Result {
+
+        final File spec;
+        final File output;
+        final String notes;
+        final String error;
+        final long nanos;
+
+        Result(File spec, File output, String notes, String error, long nanos) {
+            this.spec = spec;
+            this.output = output;
+            this.notes = notes;
+            this.error = error;
+            this.nanos = nanos;
+        }
+    }
+
+
+    /**
+     * @return Metrics of the generator shared by all jobs.
+     */
+    public GenerationMetrics getMetrics() {
+        return generator.getMetrics();
+    }
+
+
+    /**
+     * Publish metrics over JMX under the name of this process, so that a
+     * long run can be monitored. Failure is reported but not fatal.
+     */
+    private static void registerMetrics(GenerationMetrics metrics) {
+        try {
+            metrics.register(ManagementFactory.getRuntimeMXBean().getName());
+        } catch (JMException e) {
+            System.err.println("Cannot publish metrics: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Write metrics to a file, as JSON if the name ends in .json and in the
+     * Prometheus text format otherwise. The file is replaced atomically so
+     * that collectors never read part of it.
+     */
+    static void writeMetrics(GenerationMetrics metrics, File file) throws IOException {
+        String text = file.getName().endsWith(".json") ? metrics.toJson() + "\n" : metrics.toPrometheus();
+        AtomicFile.write(file, ByteBuffer.wrap(text.getBytes(Charset.forName("UTF-8"))));
+    }
+
+
+    /**
+     * Expand the command line arguments into a list of spec files. Directories
+     * are expanded to the spec files they contain and arguments starting with
+     * an @ are read as manifests.
+     *
+     * @param args
+     *            - Spec, directory and manifest arguments.
+     * @return List of spec files.
+     * @throws IOException
+     *             If a directory or manifest cannot be read.
+     */
+    static List<File> collectSpecs(List<String> args) throws IOException {
+
+        List<File> specs = new ArrayList<File>();
+
+        for (String arg : args) {
+            if (arg.startsWith("@")) {
+                File manifest = new File(arg.substring(1));
+                File base = manifest.getAbsoluteFile().getParentFile();
+
+                BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(manifest),
+                        Charset.forName("UTF-8")));
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        line = line.trim();
+                        if (line.isEmpty() || line.charAt(0) == '#')
+                            continue;
+                        File spec = new File(line);
+                        specs.add(spec.isAbsolute() ? spec : new File(base, line));
+                    }
+                } finally {
+                    in.close();
+                }
+            } else {
+                File file = new File(arg);
+                if (file.isDirectory()) {
+                    File[] children = file.listFiles();
+                    if (children == null)
+                        throw new IOException("Cannot list directory " + file);
+                    Arrays.sort(children);
+                    for (File child : children) {
+                        if (child.isFile() && child.getName().endsWith(GridSpecFile.EXTENSION))
+                            specs.add(child);
+                    }
+                } else {
+                    specs.add(file);
+                }
+            }
+        }
+
+        return specs;
+    }
+
+
+    /**
+     * Parse a comma separated list of column counts.
+     *
+     * @throws IllegalArgumentException
+     *             If a count is not a positive number.
+     */
+    static int[] parseColumnCounts(String list) {
+        String[] items = list.split(",");
+        int[] counts = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            try {
+                counts[i] = Integer.parseInt(items[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number of columns: " + items[i]);
+            }
+            if (counts[i] < 1)
+                throw new IllegalArgumentException("Number of columns must be at least 1: " + counts[i]);
+        }
+        return counts;
+    }
+
+
+    /**
+     * Main method.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        File outputDirectory = null;
+        File cacheDirectory = null;
+        int precision = BootstrapGridExtensionFileGenerator.DEFAULT_PRECISION;
+        boolean optimize = false;
+        boolean precompress = false;
+        boolean watch = false;
+        long maxSize = Long.MAX_VALUE;
+        File metricsFile = null;
+        int[] variantColumns = null;
+        boolean bothFormats = false;
+        boolean split = false;
+        List<String> inputs = new ArrayList<String>();
+
+        // Parse options.
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-j"))
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-o"))
+                    outputDirectory = new File(args[++i]);
+                else if (args[i].equals("-c"))
+                    cacheDirectory = new File(args[++i]);
+                else if (args[i].equals("-p"))
+                    precision = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-O"))
+                    optimize = true;
+                else if (args[i].equals("-z"))
+                    precompress = true;
+                else if (args[i].equals("-w"))
+                    watch = true;
+                else if (args[i].equals("-m"))
+                    maxSize = Long.parseLong(args[++i]);
+                else if (args[i].equals("-M"))
+                    metricsFile = new File(args[++i]);
+                else if (args[i].equals("-V"))
+                    variantColumns = parseColumnCounts(args[++i]);
+                else if (args[i].equals("-B"))
+                    bothFormats = true;
+                else if (args[i].equals("-S"))
+                    split = true;
+                else if (args[i].equals("-h") || args[i].equals("--help")) {
+                    System.out.println(USAGE);
+                    return;
+                } else if (args[i].startsWith("-"))
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                else
+                    inputs.add(args[i]);
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        if (inputs.isEmpty() || threads < 1 || precision < 0 || maxSize < 0
+                || (watch && (cacheDirectory != null || precompress || maxSize < Long.MAX_VALUE
+                        || metricsFile != null || variantColumns != null || split))
+                || (split && (cacheDirectory != null || precompress || optimize || variantColumns != null))
+                || (variantColumns != null && (cacheDirectory != null || precompress))
+                || (bothFormats && variantColumns == null)) {
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        List<File> specs;
+        try {
+            specs = collectSpecs(inputs);
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(EXIT_FAILURE);
+            return;
+        }
+
+        if (outputDirectory != null && !outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            System.err.println("Cannot create output directory " + outputDirectory);
+            System.exit(EXIT_FAILURE);
+        }
+
+        // Watch mode generates everything once and then follows changes.
+        if (watch) {
+            BootstrapGridExtensionFileGenerator base = new BootstrapGridExtensionFileGenerator(precision, optimize);
+            registerMetrics(base.getMetrics());
+            IncrementalGenerator generator = new IncrementalGenerator(base);
+            try {
+                new GridSpecWatcher(generator, outputDirectory, GridSpecWatcher.DEFAULT_DEBOUNCE_MILLIS, System.out)
+                        .watch(specs);
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                System.exit(EXIT_FAILURE);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        if (cacheDirectory != null && !cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+            System.err.println("Cannot create cache directory " + cacheDirectory);
+            System.exit(EXIT_FAILURE);
+        }
+
+        BootstrapGridExtensionCLI cli = new BootstrapGridExtensionCLI(threads, outputDirectory, cacheDirectory,
+                precision, optimize, precompress, maxSize, System.out);
+        if (split)
+            cli.setSplit();
+        if (variantColumns != null)
+            cli.setVariants(variantColumns, bothFormats ? new boolean[] { false, true } : null);
+        registerMetrics(cli.getMetrics());
+        int failures = cli.run(specs);
+
+        if (metricsFile != null) {
+            try {
+                writeMetrics(cli.getMetrics(), metricsFile);
+            } catch (IOException e) {
+                System.err.println("Cannot write metrics: " + e.getMessage());
+                failures++;
+            }
+        }
+
+        System.exit(failures == 0 ? 0 : EXIT_FAILURE);
+    }
+}
@@ -6,24 +6,125 @@
 
 package com.adamheins.bootstrap_grid_extension_generator;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The generator holds no per-call state, so a single instance may be shared
+ * between threads. Column types are printed from a {@link ColumnTypeTemplate}
+ * compiled once per grid shape and kept for later calls. Grids with at least a
+ * threshold number of rules have their column types rendered in parallel, see
+ * {@link ParallelGridRenderer}. The work done is counted in thread-safe
+ * {@link GenerationMetrics}.
+ */
 public class BootstrapGridExtensionFileGenerator {
 
-    
-    // Default tab of four spaces.
-    private final String DEFAULT_TAB = "    ";
-    
-    // Formatting strings.
-    private String newLine, space, semiColon, tab;
+    // Character set of generated files.
+    public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    // Default number of decimal places percentages are rounded to.
+    public static final int DEFAULT_PRECISION = 8;
+
+    // Default number of rules in a grid from which column types are rendered
+    // in parallel. See GenerationBenchmark for the crossover point.
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    // Rough number of characters per rule, used to size in-memory buffers.
+    static final int CHARS_PER_RULE = 64;
+
+    // Largest number of column type templates kept. Further templates are
+    // compiled on each call.
+    private static final int MAX_CACHED_TEMPLATES = 64;
+
+    // Number of decimal places percentages are rounded to.
+    private final int precision;
+
+    // True if rules should be pruned and compacted to reduce the output size.
+    private final boolean optimize;
+
+    // Number of rules in a grid from which column types are rendered in
+    // parallel.
+    private final int parallelThreshold;
+
+    // Work done by this generator.
+    private final GenerationMetrics metrics = new GenerationMetrics();
+
+    // Column type templates by column count, format and indentation.
+    private final ConcurrentHashMap<Long, ColumnTypeTemplate> templates =
+            new ConcurrentHashMap<Long, ColumnTypeTemplate>();
 
 
     /**
      * Default constructor.
      */
     public BootstrapGridExtensionFileGenerator() {
+        this(DEFAULT_PRECISION);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param precision
+     *            - Number of decimal places percentages are rounded to.
+     */
+    public BootstrapGridExtensionFileGenerator(int precision) {
+        this(precision, false);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param precision
+     *            - Number of decimal places percentages are rounded to.
+     * @param optimize
+     *            - True if rules should be pruned and compacted to reduce the
+     *            output size. See {@link GridStylesheetOptimizer}.
+     */
+    public BootstrapGridExtensionFileGenerator(int precision, boolean optimize) {
+        this(precision, optimize, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param precision
+     *            - Number of decimal places percentages are rounded to.
+     * @param optimize
+     *            - True if rules should be pruned and compacted to reduce the
+     *            output size. See {@link GridStylesheetOptimizer}.
+     * @param parallelThreshold
+     *            - Number of rules in a grid from which column types are
+     *            rendered in parallel. Grids are only rendered in parallel if
+     *            they have more than one column type and more than one
+     *            processor is available, so zero renders every such grid in
+     *            parallel. Integer.MAX_VALUE never renders in parallel.
+     *            Optimized grids are never rendered in parallel.
+     */
+    public BootstrapGridExtensionFileGenerator(int precision, boolean optimize, int parallelThreshold) {
+        if (precision < 0)
+            throw new IllegalArgumentException("Precision must not be negative: " + precision);
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("Parallel threshold must not be negative: " + parallelThreshold);
+        this.precision = precision;
+        this.optimize = optimize;
+        this.parallelThreshold = parallelThreshold;
     }
 
 
@@ -33,55 +134,394 @@ public class BootstrapGridExtensionFileGenerator {
      */
     public void generate(Object[][] propertyData, Object[][] divisionData, String fileName, int numColumns,
             boolean minify) throws IOException {
+        generate(GridSpec.fromTableData(propertyData, divisionData, numColumns, minify), fileName);
+    }
+
+
+    /**
+     * Generate css that extends bootstrap to have different grid properties,
+     * encoded with the given character set, to an output stream. The stream is
+     * flushed but not closed.
+     */
+    public void generate(Object[][] propertyData, Object[][] divisionData, OutputStream out, Charset charset,
+            int numColumns, boolean minify) throws IOException {
+        generate(GridSpec.fromTableData(propertyData, divisionData, numColumns, minify), out, charset);
+    }
+
+
+    /**
+     * Generate css that extends bootstrap to have different grid properties,
+     * encoded with the given character set, to a channel. The channel is not
+     * closed.
+     */
+    public void generate(Object[][] propertyData, Object[][] divisionData, WritableByteChannel channel,
+            Charset charset, int numColumns, boolean minify) throws IOException {
+        generate(GridSpec.fromTableData(propertyData, divisionData, numColumns, minify), channel, charset);
+    }
+
+
+    /**
+     * Generate css that extends bootstrap to have different grid properties to
+     * a writer. The writer is flushed but not closed.
+     */
+    public void generate(Object[][] propertyData, Object[][] divisionData, Writer writer, int numColumns,
+            boolean minify) throws IOException {
+        generate(GridSpec.fromTableData(propertyData, divisionData, numColumns, minify), writer);
+    }
+
 
-        // Initialize formatting strings.
-        // Dependent on whether the output file should be minified or not.
-        if (minify) {
-            newLine = "";
-            space = "";
-            semiColon = "";
-            tab = "";
+    /**
+     * Generate a css file from a grid spec. The whole file is rendered in
+     * memory and then replaced atomically, so readers never see part of it
+     * and it is left unchanged if generation fails. See {@link AtomicFile}.
+     */
+    public void generate(GridSpec spec, String fileName) throws IOException {
+        ByteBuffer[] blocks = render(spec, DEFAULT_CHARSET);
+
+        long start = System.nanoTime();
+        long bytes = remaining(blocks);
+        AtomicFile.write(new File(formatFileName(fileName)), blocks);
+        metrics.recordWrite(bytes, System.nanoTime() - start);
+    }
+
+
+    /**
+     * Generate several variants of a grid in one call: a css file for every
+     * combination of column count and minification. The files are generated
+     * concurrently and share the percentage tables and column type templates
+     * of each shape. Each file is named after the given file name with the
+     * number of columns and, if minified, .min added, such as grid-12.min.css.
+     * 
+     * @param spec
+     *            - The grid. Its number of columns and minification are
+     *            replaced by those of each variant.
+     * @param columnCounts
+     *            - Number of columns of each variant.
+     * @param minify
+     *            - Minification settings to generate each column count with.
+     * @param fileName
+     *            - Name that variant files are named after.
+     * @return The files generated, by column count and then by minification.
+     * @throws IllegalArgumentException
+     *             If a column count is less than one.
+     */
+    public List<File> generateVariants(GridSpec spec, int[] columnCounts, boolean[] minify, String fileName)
+            throws IOException {
+        List<GridSpec> variants = new ArrayList<GridSpec>(columnCounts.length * minify.length);
+        List<File> files = new ArrayList<File>(columnCounts.length * minify.length);
+        for (int numColumns : columnCounts) {
+            for (boolean m : minify) {
+                variants.add(spec.withShape(numColumns, m));
+                files.add(new File(variantFileName(fileName, numColumns, m)));
+            }
+        }
+
+        ParallelGridRenderer.generate(this, variants, files);
+        return files;
+    }
+
+
+    /**
+     * Name the file of a variant of a grid.
+     * 
+     * @param fileName
+     *            - Name of the file of the grid.
+     * @param numColumns
+     *            - Number of columns of the variant.
+     * @param minify
+     *            - True if the variant is minified.
+     * @return The file name of the variant.
+     */
+    static String variantFileName(String fileName, int numColumns, boolean minify) {
+        String name = formatFileName(fileName);
+        if (name.endsWith(".css"))
+            name = name.substring(0, name.length() - ".css".length());
+        return name + '-' + numColumns + (minify ? ".min" : "") + ".css";
+    }
+
+
+    /**
+     * Generate css from a grid spec, encoded with the given character set, to
+     * an output stream. The stream is flushed but not closed.
+     */
+    public void generate(GridSpec spec, OutputStream out, Charset charset) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(out);
+        Writer writer = new OutputStreamWriter(counter, charset);
+        generate(spec, writer);
+
+        long start = System.nanoTime();
+        writer.flush();
+        metrics.recordWrite(counter.getCount(), System.nanoTime() - start);
+    }
+
+
+    /**
+     * Generate css from a grid spec, encoded with the given character set, to
+     * a channel. The stylesheet is rendered in memory first and then written
+     * with a single gathering write where the channel supports it. The
+     * channel is not closed.
+     */
+    public void generate(GridSpec spec, WritableByteChannel channel, Charset charset) throws IOException {
+        ByteBuffer[] blocks = render(spec, charset);
+
+        long start = System.nanoTime();
+        long bytes = remaining(blocks);
+        if (channel instanceof GatheringByteChannel) {
+            // A gathering write may write only part of the blocks.
+            int first = 0;
+            while (first < blocks.length) {
+                ((GatheringByteChannel) channel).write(blocks, first, blocks.length - first);
+                while (first < blocks.length && !blocks[first].hasRemaining())
+                    first++;
+            }
+        } else {
+            for (ByteBuffer block : blocks) {
+                while (block.hasRemaining())
+                    channel.write(block);
+            }
+        }
+        metrics.recordWrite(bytes, System.nanoTime() - start);
+    }
+
+
+    /**
+     * Generate css from a grid spec to a writer. The writer is flushed but not
+     * closed.
+     */
+    public void generate(GridSpec spec, Writer writer) throws IOException {
+        long start = System.nanoTime();
+
+        // Formatting strings depend on whether the output file should be
+        // minified or not.
+        CssFormat f = CssFormat.of(spec.isMinify());
+
+        // Percentages are rendered once per number of columns and shared by
+        // every column type.
+        String[] percentages = PercentageTable.get(spec.getNumColumns(), precision, f);
+
+        long flushStart;
+        if (isParallel(spec)) {
+            // Render large grids in parallel and write the blocks out in
+            // order.
+            CssBuffer[] blocks = ParallelGridRenderer.render(this, spec, f, percentages);
+            flushStart = System.nanoTime();
+            for (CssBuffer block : blocks)
+                block.writeTo(writer);
+            writer.flush();
+        } else {
+            // Print into a single buffer rather than building strings.
+            CssBuffer out = new CssBuffer(writer);
+            print(out, f, spec, percentages);
+
+            // Flush buffered output through to the writer.
+            flushStart = System.nanoTime();
+            out.flush();
+        }
+
+        long end = System.nanoTime();
+        metrics.recordWrite(0, end - flushStart);
+        metrics.recordGeneration(end - start);
+    }
+
+
+    /**
+     * Render a grid in memory, encoded with the given character set.
+     * 
+     * @param spec
+     *            - The grid.
+     * @param charset
+     *            - Character set to encode with.
+     * @return Blocks of the stylesheet, in order, ready for a gathering write.
+     *         Small grids are rendered into a single direct buffer.
+     * @throws IOException
+     */
+    ByteBuffer[] render(GridSpec spec, Charset charset) throws IOException {
+        long start = System.nanoTime();
+        CssFormat f = CssFormat.of(spec.isMinify());
+        String[] percentages = PercentageTable.get(spec.getNumColumns(), precision, f);
+
+        ByteBuffer[] blocks;
+        if (isParallel(spec)) {
+            blocks = ParallelGridRenderer.render(this, spec, f, percentages, charset);
         } else {
-            newLine = "\n";
-            space = " ";
-            semiColon = ";";
-            tab = DEFAULT_TAB;
+            // The optimizer decides the shape of its output, so its size can
+            // only be estimated. Otherwise size the buffers exactly.
+            long bytes = -1;
+            CssBuffer out;
+            if (optimize) {
+                out = new CssBuffer(null, CHARS_PER_RULE * countRules(spec.getBreakpoints().size(),
+                        spec.getNumColumns()));
+            } else {
+                StylesheetSize size = StylesheetSize.grid(f, spec, percentages);
+                out = new CssBuffer(null, size.charsAsInt());
+                if (charset.equals(DEFAULT_CHARSET))
+                    bytes = size.bytes;
+            }
+            print(out, f, spec, percentages);
+
+            long encodeStart = System.nanoTime();
+            blocks = new ByteBuffer[] { encodeDirect(out.chars(), charset, bytes) };
+            metrics.recordWrite(0, System.nanoTime() - encodeStart);
+        }
+
+        metrics.recordGeneration(System.nanoTime() - start);
+        return blocks;
+    }
+
+
+    /**
+     * @return Total number of bytes left to read in a set of buffers.
+     */
+    private static long remaining(ByteBuffer[] blocks) {
+        long bytes = 0;
+        for (ByteBuffer block : blocks)
+            bytes += block.remaining();
+        return bytes;
+    }
+
+
+    /**
+     * Compute the exact size of the stylesheet of a grid, encoded with the
+     * default charset. Unless the generator is optimized, the size is computed
+     * from the grid without rendering anything, so a grid can cheaply be
+     * checked against a size limit before it is generated. Optimized
+     * stylesheets are rendered and counted, as their size depends on which
+     * rules the optimizer drops.
+     * 
+     * @param spec
+     *            - The grid.
+     * @return Size of the stylesheet in bytes.
+     * @throws IOException
+     *             If an optimized stylesheet cannot be rendered.
+     */
+    public long computeSize(GridSpec spec) throws IOException {
+        if (optimize) {
+            CountingOutputStream counter = new CountingOutputStream(null);
+            generate(spec, counter, DEFAULT_CHARSET);
+            return counter.getCount();
         }
 
-        // Open an output stream to the file.
-        BufferedWriter out = new BufferedWriter(new FileWriter(formatFileName(fileName)));
+        CssFormat f = CssFormat.of(spec.isMinify());
+        return StylesheetSize.grid(f, spec, PercentageTable.get(spec.getNumColumns(), precision, f)).bytes;
+    }
+
+
+    /**
+     * Print a whole grid.
+     * 
+     * @param out
+     *            - Output buffer.
+     * @param f
+     *            - Formatting strings.
+     * @param spec
+     *            - The grid.
+     * @param percentages
+     *            - Rendered percentage of each number of columns, including
+     *            the % sign.
+     * @throws IOException
+     */
+    private void print(CssBuffer out, CssFormat f, GridSpec spec, String[] percentages) throws IOException {
 
         // Print import of core bootstrap css.
-        // Assumes you are using bootsrap.min if you generate a minified file.
-        if (minify)
-            out.write("@import 'bootstrap.min.css';");
-        else
-            out.write("@import 'bootstrap.css';\n\n\n");
+        out.append(f.importRule);
 
         // Print initial properties common to all column.
-        printInitProperties(out, divisionData, propertyData, numColumns);
+        printInitProperties(out, f, spec);
+
+        // Leave the column types to the optimizer if enabled.
+        if (optimize) {
+            long start = System.nanoTime();
+            int rules = GridStylesheetOptimizer.printColumnTypes(out, f, spec, percentages);
+            metrics.recordColumnTypes(spec.getBreakpoints().size(), rules, System.nanoTime() - start);
+            return;
+        }
 
         // Print properties of each class of each column type.
-        for (int i = 0; i < divisionData.length; i++) {
+        List<Breakpoint> breakpoints = spec.getBreakpoints();
+        for (int i = 0; i < breakpoints.size(); i++)
+            printColumnType(out, f, breakpoints.get(i), percentages);
+    }
 
-            // Check if block needs to be within an @media size condition.
-            if (isZeroWidth((String) divisionData[i][1]))
-                printColumnProperties(out, "." + divisionData[i][0] + "-", numColumns, false);
-            else {
 
-                // Print media query.
-                out.write(newLine + "@media" + space + "(min-width:" + space + divisionData[i][1] + ")" + space + "{"
-                        + newLine);
+    /**
+     * Encode characters into a direct buffer, which a file channel can write
+     * without copying.
+     * 
+     * @param chars
+     *            - Characters to encode.
+     * @param charset
+     *            - Character set to encode with.
+     * @param size
+     *            - Exact number of bytes the characters encode to, or -1 if
+     *            not known.
+     * @return The encoded bytes, ready to be read.
+     * @throws CharacterCodingException
+     *             If the characters cannot be encoded.
+     */
+    static ByteBuffer encodeDirect(CharBuffer chars, Charset charset, long size) throws CharacterCodingException {
+        CharsetEncoder encoder = charset.newEncoder();
+        int capacity = size >= 0 && size <= Integer.MAX_VALUE ? (int) size
+                : (int) (chars.remaining() * encoder.averageBytesPerChar());
+        ByteBuffer bytes = ByteBuffer.allocateDirect(capacity);
+
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (result.isUnderflow())
+                result = encoder.flush(bytes);
+            if (result.isUnderflow())
+                break;
+
+            // Grow the buffer if the characters encode to more bytes than
+            // expected.
+            if (result.isOverflow()) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(bytes.capacity() * 2 + 16);
+                bytes.flip();
+                bytes = larger.put(bytes);
+            } else {
+                result.throwException();
+            }
+        }
+
+        bytes.flip();
+        return bytes;
+    }
 
-                printColumnProperties(out, "." + divisionData[i][0] + "-", numColumns, true);
 
-                // Closing bracket of media query.
-                out.write("}" + newLine);
-            }
+    /**
+     * Print the classes of a single column type.
+     * 
+     * @param out
+     *            - Output buffer.
+     * @param f
+     *            - Formatting strings.
+     * @param breakpoint
+     *            - The column type.
+     * @param percentages
+     *            - Rendered percentage of each number of columns, including
+     *            the % sign.
+     * @throws IOException
+     */
+    void printColumnType(CssBuffer out, CssFormat f, Breakpoint breakpoint, String[] percentages)
+            throws IOException {
+        long start = System.nanoTime();
+
+        // Check if block needs to be within an @media size condition.
+        if (breakpoint.isZeroWidth())
+            printColumnProperties(out, f, breakpoint.getName(), percentages, false);
+        else {
+
+            // Print media query.
+            out.append(f.newLine).append("@media").append(f.space).append("(min-width:").append(f.space)
+                    .append(f.value(breakpoint.getMinWidth())).append(')').append(f.space).append('{')
+                    .append(f.newLine);
+
+            printColumnProperties(out, f, breakpoint.getName(), percentages, true);
+
+            // Closing bracket of media query.
+            out.append('}').append(f.newLine);
         }
 
-        // Close output stream.
-        out.close();
+        metrics.recordColumnTypes(1, countColumnTypeRules(percentages.length - 1), System.nanoTime() - start);
     }
 
 
@@ -89,32 +529,51 @@ public class BootstrapGridExtensionFileGenerator {
      * Print the initial properties that all columns share.
      * 
      * @param out
-     *            - Output stream to file.
-     * @param divisionData
-     *            - Array of names of different column types.
-     * @param num
-     *            - Number of columns.
+     *            - Output buffer.
+     * @param f
+     *            - Formatting strings.
+     * @param spec
+     *            - Grid spec holding the column types, properties and number
+     *            of columns.
      * @throws IOException
      */
-    private void printInitProperties(BufferedWriter out, Object[][] divisionData, Object[][] propertyData, int num)
-            throws IOException {
+    void printInitProperties(CssBuffer out, CssFormat f, GridSpec spec) throws IOException {
+        long start = System.nanoTime();
+
+        List<Breakpoint> breakpoints = spec.getBreakpoints();
+        List<Property> properties = spec.getProperties();
+        int num = spec.getNumColumns();
 
         // Print names of all columns
-        for (int i = 1; i < num; i++) {
-            for (int j = 0; j < divisionData.length; j++)
-                out.write("." + divisionData[j][0] + "-" + i + "," + newLine);
+        for (int i = 1; i <= num; i++) {
+            for (int j = 0; j < breakpoints.size(); j++) {
+                out.append('.').append(breakpoints.get(j).getName()).append('-').append(i);
+
+                // Selectors are separated by commas until the last one. The
+                // optimizer puts all column types of a number on one line.
+                if (i < num || j < breakpoints.size() - 1) {
+                    out.append(',');
+                    if (!optimize || j == breakpoints.size() - 1)
+                        out.append(f.newLine);
+                }
+            }
         }
-        for (int j = 0; j < divisionData.length - 1; j++)
-            out.write("." + divisionData[j][0] + "-" + num + "," + newLine);
-        out.write("." + divisionData[divisionData.length - 1][0] + "-" + num + space + "{" + newLine);
+        out.append(f.space).append('{').append(f.newLine);
 
         // Print initial column properties.
-        for (int i = 0; i < propertyData.length - 1; i++)
-            out.write(tab + propertyData[i][0] + ":" + space + propertyData[i][1] + ";" + newLine);
-        out.write(tab + propertyData[propertyData.length - 1][0] + ":" + space
-                + propertyData[propertyData.length - 1][1] + semiColon + newLine);
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            out.append(f.tab).append(f.name(property.getName())).append(':').append(f.space)
+                    .append(f.value(property.getValue()));
+
+            // The last semi-colon is optional.
+            out.append(i < properties.size() - 1 ? ";" : f.semiColon).append(f.newLine);
+        }
+
+        out.append('}').append(f.newLine).append(f.newLine);
+        out.endRule();
 
-        out.write("}" + newLine + newLine);
+        metrics.recordHeader(System.nanoTime() - start);
     }
 
 
@@ -122,82 +581,135 @@ public class BootstrapGridExtensionFileGenerator {
      * Print properties of each of each column type.
      * 
      * @param out
-     *            - Output stream to file.
+     *            - Output buffer.
+     * @param f
+     *            - Formatting strings.
      * @param name
      *            - Name of the column.
-     * @param num
-     *            - Number of columns.
+     * @param percentages
+     *            - Rendered percentage of each number of columns, including
+     *            the % sign, as given by this generator's precision.
      * @throws IOException
      */
-    private void printColumnProperties(BufferedWriter out, String name, int num, boolean indented) throws IOException {
+    void printColumnProperties(CssBuffer out, CssFormat f, String name, String[] percentages,
+            boolean indented) throws IOException {
+        template(f, percentages, indented).print(out, name);
+    }
+
 
-        // Print out the different classes associated with each column.
-        printColumnItem(out, name, "width", num, 1, indented);
-        printColumnItem(out, name + "pull-", "right", num, 0, indented);
-        printColumnItem(out, name + "push-", "left", num, 0, indented);
-        printColumnItem(out, name + "offset-", "margin-left", num, 0, indented);
+    /**
+     * Get the template of a grid shape, compiling it if it is not cached.
+     * 
+     * @param f
+     *            - Formatting strings.
+     * @param percentages
+     *            - Rendered percentage of each number of columns, including
+     *            the % sign, as given by this generator's precision.
+     * @param indented
+     *            - True if the classes are indented within a media query.
+     * @return The template.
+     */
+    ColumnTypeTemplate template(CssFormat f, String[] percentages, boolean indented) {
+        Long key = ((long) (percentages.length - 1) << 2) | (f.minify ? 2 : 0) | (indented ? 1 : 0);
+
+        ColumnTypeTemplate template = templates.get(key);
+        if (template == null) {
+            template = ColumnTypeTemplate.compile(f, percentages, indented);
+            if (templates.size() < MAX_CACHED_TEMPLATES)
+                templates.putIfAbsent(key, template);
+        }
+        return template;
     }
 
 
     /**
-     * Print properties of sub-types of each column type.
+     * Count the rules printed for a grid, not counting the bootstrap import.
      * 
-     * @param out
-     *            - Output stream to file.
-     * @param name
-     *            - Name of the column.
-     * @param property
-     *            - Css property that is being defined.
+     * @param numTypes
+     *            - Number of column types.
      * @param num
      *            - Number of columns.
-     * @param start
-     *            - Starting point of classes (either 0 or 1).
-     * @throws IOException
+     * @return The number of rules.
      */
-    private void printColumnItem(BufferedWriter out, String name, String property, int num, int start, boolean indented)
-            throws IOException {
+    static int countRules(int numTypes, int num) {
+        return 1 + numTypes * countColumnTypeRules(num);
+    }
 
-        // Increment of percentage each additional class has.
-        double inc = 100.0 / num;
 
-        // Print property of the column class.
-        for (int i = start; i < num + 1; i++) {
-            out.write(newLine);
-            printLine(out, indented, name + i + space + "{" + newLine);
-            printLine(out, indented, tab + property + ":" + space + (inc * i) + "%" + semiColon + newLine);
-            printLine(out, indented, "}" + newLine);
-        }
+    /**
+     * Count the rules printed for a single column type: the widths from one
+     * and the pulls, pushes and offsets from zero.
+     * 
+     * @param num
+     *            - Number of columns.
+     * @return The number of rules.
+     */
+    static int countColumnTypeRules(int num) {
+        return num + 3 * (num + 1);
     }
 
 
     /**
-     * Print a line to output with an optional indent.
-     * @param out - <code>BufferedWriter</code> output stream.
-     * @param indented - True if line should be indented, false otherwise.
-     * @param printStr - String to be printed.
-     * @throws IOException
+     * Check whether a grid is large enough to render in parallel. Nothing is
+     * rendered in parallel on a single processor.
+     * 
+     * @param spec
+     *            - The grid.
+     * @return True if the column types of the grid should be rendered in
+     *         parallel.
      */
-    private void printLine(BufferedWriter out, boolean indented, String printStr) throws IOException {
-        if (indented)
-            out.write(tab);
-        out.write(printStr);
+    boolean isParallel(GridSpec spec) {
+        return !optimize && isLarge(spec);
     }
 
 
     /**
-     * Analyzes a string to determine whether or not it is indicating a
-     * view-port width of zero. If the string is empty, it is taken as zero. If
-     * the first character is 0 and is not followed by another digit or radix
-     * point, it is taken as zero.
+     * Check whether a grid is large enough to render its column types in
+     * parallel when they are rendered separately, whether or not the
+     * generator is optimized.
      * 
-     * @param str
-     *            - String to be analyzed.
-     * @return Returns true if the string is determined to mean zero, false
-     *         otherwise.
+     * @param spec
+     *            - The grid.
+     * @return True if the column types of the grid are worth rendering in
+     *         parallel.
+     */
+    boolean isLarge(GridSpec spec) {
+        int types = spec.getBreakpoints().size();
+        return types > 1 && countRules(types, spec.getNumColumns()) >= parallelThreshold
+                && Runtime.getRuntime().availableProcessors() > 1;
+    }
+
+
+    /**
+     * @return Number of decimal places percentages are rounded to.
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+
+    /**
+     * @return True if rules are pruned and compacted to reduce the output size.
+     */
+    public boolean isOptimized() {
+        return optimize;
+    }
+
+
+    /**
+     * @return Number of rules in a grid from which column types are rendered
+     *         in parallel.
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+
+    /**
+     * @return Metrics of the work done by this generator.
      */
-    private boolean isZeroWidth(String str) {
-        return (str.equals("") || str.charAt(0) == '0'
-                && (str.length() == 1 || (!Character.isDigit(str.charAt(1)) && str.charAt(1) != '.')));
+    public GenerationMetrics getMetrics() {
+        return metrics;
     }
 
 
@@ -207,7 +719,7 @@ public class BootstrapGridExtensionFileGenerator {
      * 
      * @return String representing the file name with extension.
      */
-    private String formatFileName(String fileName) {
+    static String formatFileName(String fileName) {
         if (fileName.indexOf(".css") == -1)
             fileName = fileName.concat(".css");
         return fileName;
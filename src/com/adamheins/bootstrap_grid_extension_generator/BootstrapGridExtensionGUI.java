@@ -14,8 +14,11 @@ import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
 
 import javax.imageio.ImageIO;
 import javax.swing.text.AbstractDocument;
@@ -28,16 +31,28 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JSeparator;
 import javax.swing.JTabbedPane;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
 
 public class BootstrapGridExtensionGUI extends JPanel implements ActionListener {
 
     // Serial version UID.
     private static final long serialVersionUID = -6864487932468206456L;
 
+    // Largest number of columns that can be entered, so that typing or
+    // pasting a huge number does not start rendering a huge preview.
+    private final int MAX_NUMBER_OF_COLUMNS = 1000;
+
     // Initial values of all fields and tables.
     private final String DEFAULT_NUMBER_OF_COLUMNS = "20";
     private final String DEFAULT_FILE_NAME = "grid_extension.css";
@@ -50,10 +65,19 @@ public class BootstrapGridExtensionGUI extends JPanel implements ActionListener
     private final String DIVISION_TABLE_DEFAULT_ROW_DATA[][] = { { "col-xs", "0px" }, { "col-sm", "768px" },
             { "col-md", "992px" }, { "col-lg", "1200px" } };
 
+    // Delay after the last change before the preview is updated, in
+    // milliseconds.
+    private final int PREVIEW_DELAY = 250;
+
     // Tables for column properties and types.
     private TablePanel propertyTable;
     private TablePanel divisionTable;
 
+    // Preview of the generated css, and timer that delays updating it until
+    // changes stop.
+    private PreviewPanel previewPanel;
+    private Timer previewTimer;
+
     // Input forms.
     private JTextField numberColumnsField;
     private JTextField fileNameField;
@@ -62,12 +86,20 @@ public class BootstrapGridExtensionGUI extends JPanel implements ActionListener
     // Button to trigger generation of file.
     private JButton generateButton;
 
+    // Progress of generation and button to cancel it.
+    private JProgressBar progressBar;
+    private JButton cancelButton;
+
+    // Worker generating the file in the background, or null if not running.
+    private SwingWorker<Integer, Void> worker;
+
     // Icons for file generation messages.
     private ImageIcon errorIcon;
     private ImageIcon successIcon;
 
-    // Generates the new css file.
-    private BootstrapGridExtensionFileGenerator generator;
+    // Generates the new css file, re-rendering only what changed since the
+    // last time it was generated.
+    private IncrementalGenerator generator;
 
 
     /**
@@ -75,7 +107,7 @@ public class BootstrapGridExtensionGUI extends JPanel implements ActionListener
      */
     public BootstrapGridExtensionGUI() {
 
-        generator = new BootstrapGridExtensionFileGenerator();
+        generator = new IncrementalGenerator(new BootstrapGridExtensionFileGenerator());
 
         // Load message icons.
         successIcon = new ImageIcon(getClass().getResource("/icon/Success32.png"));
@@ -91,6 +123,10 @@ public class BootstrapGridExtensionGUI extends JPanel implements ActionListener
         add(getNorthPanel(), BorderLayout.NORTH);
         add(getTableTabbedPane(), BorderLayout.CENTER);
         add(getSouthPanel(), BorderLayout.SOUTH);
+
+        // Keep the preview up to date with the input.
+        watchInput();
+        updatePreview();
     }
 
 
@@ -126,7 +162,8 @@ public class BootstrapGridExtensionGUI extends JPanel implements ActionListener
         fileNameField.setText(DEFAULT_FILE_NAME);
 
         numberColumnsField = new JTextField(3);
-        ((AbstractDocument) numberColumnsField.getDocument()).setDocumentFilter(new NumberDocumentFilter());
+        ((AbstractDocument) numberColumnsField.getDocument()).setDocumentFilter(
+                new NumberDocumentFilter(MAX_NUMBER_OF_COLUMNS));
         numberColumnsField.setText(DEFAULT_NUMBER_OF_COLUMNS);
 
         // Add components to the nameAndNumberPanel.
@@ -163,6 +200,10 @@ public class BootstrapGridExtensionGUI extends JPanel implements ActionListener
         divisionTable = new TablePanel(DIVISION_TABLE_DEFAULT_ROW_DATA, DIVISION_TABLE_COLUMN_NAMES);
         tableTabbedPane.addTab("Column Types", divisionTable);
 
+        // Set up PreviewPanel for the generated css.
+        previewPanel = new PreviewPanel(new BootstrapGridExtensionFileGenerator());
+        tableTabbedPane.addTab("Preview", previewPanel);
+
         return tableTabbedPane;
     }
 
@@ -182,33 +223,218 @@ public class BootstrapGridExtensionGUI extends JPanel implements ActionListener
 
         minifyBox = new JCheckBox();
 
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setVisible(false);
+
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(this);
+        cancelButton.setVisible(false);
+
         // Add components to the south panel.
         southPanel.add(generateButton);
         southPanel.add(minifyBox);
         southPanel.add(new JLabel("Minify"));
+        southPanel.add(progressBar);
+        southPanel.add(cancelButton);
 
         return southPanel;
     }
 
 
+    /**
+     * Listen for changes to any of the input that affects the generated css,
+     * and schedule the preview to be updated once changes stop.
+     */
+    private void watchInput() {
+
+        previewTimer = new Timer(PREVIEW_DELAY, this);
+        previewTimer.setRepeats(false);
+
+        TableModelListener tableListener = new TableModelListener() {
+            public void tableChanged(TableModelEvent e) {
+                previewTimer.restart();
+            }
+        };
+        propertyTable.addTableModelListener(tableListener);
+        divisionTable.addTableModelListener(tableListener);
+
+        numberColumnsField.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                previewTimer.restart();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                previewTimer.restart();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                previewTimer.restart();
+            }
+        });
+
+        minifyBox.addActionListener(this);
+    }
+
+
+    /**
+     * Read the grid from the tables and fields. Must be called on the EDT.
+     * 
+     * @return The grid spec.
+     * @throws IllegalArgumentException
+     *             If a cell is empty or the number of columns is not a
+     *             positive number.
+     */
+    private GridSpec readSpec() {
+        int numColumns;
+        try {
+            numColumns = Integer.parseInt(numberColumnsField.getText());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Number of columns must be a number");
+        }
+        return GridSpec.fromTableData(propertyTable.getSnapshot(), divisionTable.getSnapshot(), numColumns,
+                minifyBox.isSelected());
+    }
+
+
+    /**
+     * Update the preview with the current input.
+     */
+    private void updatePreview() {
+        try {
+            previewPanel.update(readSpec());
+        } catch (IllegalArgumentException e) {
+            previewPanel.showError();
+        }
+    }
+
+
     @Override
     public void actionPerformed(ActionEvent act) {
 
         // Respond to Generate button being pressed.
         if (act.getSource() == generateButton) {
-            try {
-                generator.generate(propertyTable.getRowData(), divisionTable.getRowData(), fileNameField.getText(),
-                        Integer.parseInt(numberColumnsField.getText()), minifyBox.isSelected());
-
-                // Display success message.
-                JOptionPane.showMessageDialog(this, "File generated successfully.", "Success!",
-                        JOptionPane.INFORMATION_MESSAGE, successIcon);
-            } catch (Exception e) {
-                // Display error message.
-                JOptionPane.showMessageDialog(this, "Error generating file.", "Error!", JOptionPane.ERROR_MESSAGE,
-                        errorIcon);
+            startGenerating();
+
+        // Respond to Cancel button being pressed.
+        } else if (act.getSource() == cancelButton) {
+            if (worker != null) {
+                worker.cancel(true);
+
+                // The controls stay busy until the worker has stopped.
+                cancelButton.setEnabled(false);
             }
+
+        // Respond to the input changing.
+        } else if (act.getSource() == minifyBox) {
+            previewTimer.restart();
+        } else if (act.getSource() == previewTimer) {
+            updatePreview();
+        }
+    }
+
+
+    /**
+     * Generate the file on a background thread, so that the GUI stays
+     * responsive. Progress is shown while generating and the Generate button
+     * is disabled until done. A cancelled worker may still be finishing its
+     * write when it is reported as done, so the controls are only reset once
+     * it has really stopped.
+     */
+    private void startGenerating() {
+
+        // Read the input on the EDT.
+        final String fileName = fileNameField.getText();
+        final GridSpec spec;
+        try {
+            spec = readSpec();
+        } catch (IllegalArgumentException e) {
+            showError(e.getMessage());
+            return;
         }
+
+        worker = new SwingWorker<Integer, Void>() {
+
+            @Override
+            protected Integer doInBackground() throws Exception {
+                try {
+                    return generator.generate(spec, fileName, new GenerationProgress() {
+                        public void rulesEmitted(int emitted, int total) {
+                            setProgress((int) (100L * emitted / total));
+                        }
+                    });
+                } finally {
+                    final SwingWorker<Integer, Void> self = this;
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            if (worker == self) {
+                                worker = null;
+                                setGenerating(false);
+                            }
+                        }
+                    });
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled())
+                    return;
+
+                try {
+                    get();
+
+                    // Display success message.
+                    JOptionPane.showMessageDialog(BootstrapGridExtensionGUI.this, "File generated successfully.",
+                            "Success!", JOptionPane.INFORMATION_MESSAGE, successIcon);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    showError(e.getCause().getMessage());
+                }
+            }
+        };
+
+        // Show progress as it is reported.
+        worker.addPropertyChangeListener(new PropertyChangeListener() {
+            public void propertyChange(PropertyChangeEvent event) {
+                if (event.getPropertyName().equals("progress"))
+                    progressBar.setValue((Integer) event.getNewValue());
+            }
+        });
+
+        setGenerating(true);
+        worker.execute();
+    }
+
+
+    /**
+     * Switch the controls between generating and idle.
+     * 
+     * @param generating
+     *            - True if a file is being generated.
+     */
+    private void setGenerating(boolean generating) {
+        generateButton.setEnabled(!generating);
+        progressBar.setValue(0);
+        progressBar.setVisible(generating);
+        cancelButton.setVisible(generating);
+        cancelButton.setEnabled(generating);
+        revalidate();
+    }
+
+
+    /**
+     * Display the error message for a failed generation. The file is left as
+     * it was.
+     * 
+     * @param reason
+     *            - Why generation failed, or null if not known.
+     */
+    private void showError(String reason) {
+        String message = "Error generating file.";
+        if (reason != null)
+            message += "\n" + reason + ".";
+        JOptionPane.showMessageDialog(this, message, "Error!", JOptionPane.ERROR_MESSAGE, errorIcon);
     }
 
 
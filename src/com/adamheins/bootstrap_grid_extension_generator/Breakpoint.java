@@ -0,0 +1,125 @@
+/**
+ * Breakpoint
+ * A column type, such as col-md, and the minimum viewport width it applies
+ * from.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+public final class Breakpoint {
+
+    // Name of the column type.
+    private final String name;
+
+    // Minimum viewport width as entered.
+    private final String minWidth;
+
+    // True if the minimum width is zero, so no media query is needed.
+    private final boolean zeroWidth;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            - Name of the column type.
+     * @param minWidth
+     *            - Minimum viewport width, such as 768px. An empty width is
+     *            taken as zero.
+     * @throws IllegalArgumentException
+     *             If the name is missing or the width does not start with a
+     *             number.
+     */
+    public Breakpoint(String name, String minWidth) {
+        if (name == null || name.trim().isEmpty())
+            throw new IllegalArgumentException("Column type name is missing");
+        if (minWidth == null)
+            throw new IllegalArgumentException("Minimum viewport width of " + name + " is missing");
+
+        this.name = name;
+        this.minWidth = minWidth;
+        this.zeroWidth = isZeroWidth(minWidth);
+        if (!zeroWidth)
+            parseWidth(name, minWidth);
+    }
+
+
+    /**
+     * Read the number at the start of a width, checking that there is one.
+     */
+    private static double parseWidth(String name, String minWidth) {
+        String width = minWidth.trim();
+        int end = 0;
+        while (end < width.length() && (Character.isDigit(width.charAt(end)) || width.charAt(end) == '.'))
+            end++;
+        try {
+            return Double.parseDouble(width.substring(0, end));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Minimum viewport width of " + name + " is not a number: "
+                    + minWidth);
+        }
+    }
+
+
+    /**
+     * Analyzes a string to determine whether or not it is indicating a
+     * view-port width of zero. If the string is empty, it is taken as zero. If
+     * the first character is 0 and is not followed by another digit or radix
+     * point, it is taken as zero.
+     * 
+     * @param str
+     *            - String to be analyzed.
+     * @return Returns true if the string is determined to mean zero, false
+     *         otherwise.
+     */
+    static boolean isZeroWidth(String str) {
+        return (str.equals("") || str.charAt(0) == '0'
+                && (str.length() == 1 || (!Character.isDigit(str.charAt(1)) && str.charAt(1) != '.')));
+    }
+
+
+    /**
+     * @return Name of the column type.
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * @return Minimum viewport width as entered.
+     */
+    public String getMinWidth() {
+        return minWidth;
+    }
+
+
+    /**
+     * @return True if the minimum width is zero, so the column type applies
+     *         to every viewport.
+     */
+    public boolean isZeroWidth() {
+        return zeroWidth;
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Breakpoint))
+            return false;
+        Breakpoint other = (Breakpoint) obj;
+        return name.equals(other.name) && minWidth.equals(other.minWidth);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + minWidth.hashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return name + ": " + minWidth;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * ColumnTypeTemplate
+ * The classes of a column type rendered once for a grid shape, with slots
+ * for the column type name, so that every column type of that shape can be
+ * printed by copying.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * The classes of every column type are the same apart from the name of the
+ * column type, which starts the selector of each rule. A template holds the
+ * text of all the classes with the names left out, along with where each name
+ * goes. Printing a column type then takes two copies per rule rather than a
+ * dozen appends.
+ */
+final class ColumnTypeTemplate {
+
+    // Text of the classes without the column type names.
+    private final char[] text;
+
+    // Offset into the text where each rule's name goes, one per rule.
+    private final int[] slots;
+
+
+    /**
+     * Constructor.
+     */
+    private ColumnTypeTemplate(char[] text, int[] slots) {
+        this.text = text;
+        this.slots = slots;
+    }
+
+
+    /**
+     * Compile the template of a grid shape.
+     *
+     * @param f
+     *            - Formatting strings.
+     * @param percentages
+     *            - Rendered percentage of each number of columns, including
+     *            the % sign.
+     * @param indented
+     *            - True if the classes are indented within a media query.
+     * @return The template.
+     */
+    static ColumnTypeTemplate compile(CssFormat f, String[] percentages, boolean indented) {
+        int num = percentages.length - 1;
+        int[] slots = new int[BootstrapGridExtensionFileGenerator.countColumnTypeRules(num)];
+        CssBuffer out = new CssBuffer(null, slots.length * BootstrapGridExtensionFileGenerator.CHARS_PER_RULE);
+
+        try {
+            int rule = 0;
+            rule = compileItem(out, f, slots, rule, "", "width", percentages, 1, indented);
+            rule = compileItem(out, f, slots, rule, "pull-", "right", percentages, 0, indented);
+            rule = compileItem(out, f, slots, rule, "push-", "left", percentages, 0, indented);
+            compileItem(out, f, slots, rule, "offset-", "margin-left", percentages, 0, indented);
+        } catch (IOException e) {
+            // Buffers kept in memory are never written out.
+            throw new IllegalStateException(e);
+        }
+
+        CharBuffer chars = out.chars();
+        return new ColumnTypeTemplate(Arrays.copyOf(chars.array(), chars.remaining()), slots);
+    }
+
+
+    /**
+     * Compile the rules of a sub-type of the column type, such as pull-,
+     * recording where the name of each goes.
+     *
+     * @return The index of the next rule.
+     */
+    private static int compileItem(CssBuffer out, CssFormat f, int[] slots, int rule, String subType,
+            String property, String[] percentages, int start, boolean indented) throws IOException {
+        String indent = indented ? f.tab : "";
+
+        for (int i = start; i < percentages.length; i++) {
+            out.append(f.newLine).append(indent).append('.');
+            slots[rule++] = out.length();
+            out.append('-').append(subType).append(i).append(f.space).append('{').append(f.newLine);
+            out.append(indent).append(f.tab).append(property).append(':').append(f.space).append(percentages[i])
+                    .append(f.semiColon).append(f.newLine);
+            out.append(indent).append('}').append(f.newLine);
+        }
+        return rule;
+    }
+
+
+    /**
+     * Print the classes of a column type.
+     *
+     * @param out
+     *            - Output buffer.
+     * @param name
+     *            - Name of the column type.
+     * @throws IOException
+     */
+    void print(CssBuffer out, String name) throws IOException {
+
+        // Each copy ends with the start of a rule, so the rule before it has
+        // ended.
+        int from = 0;
+        for (int i = 0; i < slots.length; i++) {
+            out.append(text, from, slots[i] - from);
+            if (i > 0)
+                out.endRule();
+            out.append(name);
+            from = slots[i];
+        }
+        out.append(text, from, text.length - from);
+        out.endRule();
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * CountingOutputStream
+ * Output stream that counts the bytes written through it.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+class CountingOutputStream extends FilterOutputStream {
+
+    // Number of bytes written.
+    private long count;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            - Stream to pass bytes on to, or null to discard them.
+     */
+    CountingOutputStream(OutputStream out) {
+        super(out);
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        if (out != null)
+            out.write(b);
+        count++;
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out != null)
+            out.write(b, off, len);
+        count += len;
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null)
+            out.flush();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (out != null)
+            out.close();
+    }
+
+
+    /**
+     * @return Number of bytes written.
+     */
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * CssBuffer
+ * Character buffer that css is printed into before being passed on to a
+ * writer. Strings, characters and integers are copied straight into the
+ * buffer so that printing does not create intermediate strings.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+final class CssBuffer {
+
+    // Default size of the buffer.
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    // Largest number of digits in an int, plus a sign.
+    private static final int MAX_INT_CHARS = 11;
+
+    // Number of rules between progress updates.
+    private static final int PROGRESS_INTERVAL = 256;
+
+    // Writer that full buffers are passed on to, or null if the buffer grows
+    // to hold everything printed.
+    private final Writer out;
+
+    // Buffered characters.
+    private char[] buf;
+    private int count;
+
+    // Listener for progress updates, or null if not listening.
+    private GenerationProgress progress;
+    private int rules, totalRules;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            - Writer that buffered characters are passed on to.
+     */
+    CssBuffer(Writer out) {
+        this(out, DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * Constructor.
+     * 
+     * @param out
+     *            - Writer that buffered characters are passed on to, or null
+     *            to keep everything printed in memory.
+     * @param capacity
+     *            - Size of the buffer, or the initial size if kept in memory.
+     */
+    CssBuffer(Writer out, int capacity) {
+        this.out = out;
+        this.buf = new char[Math.max(capacity, MAX_INT_CHARS)];
+    }
+
+
+    /**
+     * Append a string.
+     */
+    CssBuffer append(String str) throws IOException {
+        int len = str.length();
+        int off = 0;
+
+        // Copy as much as fits, flushing whenever the buffer fills up.
+        while (len > 0) {
+            if (count == buf.length)
+                flushBuffer();
+            int n = Math.min(len, buf.length - count);
+            str.getChars(off, off + n, buf, count);
+            count += n;
+            off += n;
+            len -= n;
+        }
+        return this;
+    }
+
+
+    /**
+     * Append part of a character array.
+     */
+    CssBuffer append(char[] chars, int off, int len) throws IOException {
+
+        // Copy as much as fits, flushing whenever the buffer fills up.
+        while (len > 0) {
+            if (count == buf.length)
+                flushBuffer();
+            int n = Math.min(len, buf.length - count);
+            System.arraycopy(chars, off, buf, count, n);
+            count += n;
+            off += n;
+            len -= n;
+        }
+        return this;
+    }
+
+
+    /**
+     * Append a single character.
+     */
+    CssBuffer append(char c) throws IOException {
+        if (count == buf.length)
+            flushBuffer();
+        buf[count++] = c;
+        return this;
+    }
+
+
+    /**
+     * Append the decimal representation of an integer.
+     */
+    CssBuffer append(int value) throws IOException {
+
+        // Use a negative value so that Integer.MIN_VALUE is handled.
+        boolean negative = value < 0;
+        if (!negative)
+            value = -value;
+
+        // Count digits, making room for exactly as many as needed so that
+        // buffers sized to fit their content never grow.
+        int digits = 1;
+        for (int v = value; v <= -10; v /= 10)
+            digits++;
+        if (buf.length - count < (negative ? digits + 1 : digits))
+            flushBuffer();
+
+        // Fill in the digits from the right.
+        if (negative)
+            buf[count++] = '-';
+        int pos = count + digits;
+        count = pos;
+        do {
+            buf[--pos] = (char) ('0' - value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        return this;
+    }
+
+
+    /**
+     * Report progress to a listener as rules are printed.
+     * 
+     * @param progress
+     *            - Listener for progress updates.
+     * @param emitted
+     *            - Number of rules already printed before this buffer.
+     * @param total
+     *            - Total number of rules to be printed.
+     */
+    void setProgress(GenerationProgress progress, int emitted, int total) {
+        this.progress = progress;
+        this.rules = emitted;
+        this.totalRules = total;
+    }
+
+
+    /**
+     * @return Number of rules printed, including any printed before this
+     *         buffer.
+     */
+    int getRules() {
+        return rules;
+    }
+
+
+    /**
+     * Mark the end of a rule. Progress is reported periodically, and printing
+     * is stopped if the thread has been interrupted.
+     * 
+     * @throws InterruptedIOException
+     *             If the thread has been interrupted.
+     */
+    void endRule() throws IOException {
+        rules++;
+        if (rules % PROGRESS_INTERVAL == 0 || rules == totalRules) {
+            if (Thread.currentThread().isInterrupted())
+                throw new InterruptedIOException("Generation cancelled");
+            if (progress != null)
+                progress.rulesEmitted(rules, totalRules);
+        }
+    }
+
+
+    /**
+     * Pass all buffered characters on to the writer and flush it. Does
+     * nothing if kept in memory.
+     */
+    void flush() throws IOException {
+        if (out == null)
+            return;
+        flushBuffer();
+        out.flush();
+    }
+
+
+    /**
+     * Pass all buffered characters on to the writer, or make room for more if
+     * kept in memory.
+     */
+    private void flushBuffer() throws IOException {
+        if (out == null) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+        } else if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+
+    /**
+     * @return Number of characters in the buffer, which is everything printed
+     *         if kept in memory.
+     */
+    int length() {
+        return count;
+    }
+
+
+    /**
+     * Write the characters kept in memory to a writer.
+     */
+    void writeTo(Writer writer) throws IOException {
+        writer.write(buf, 0, count);
+    }
+
+
+    /**
+     * @return The characters kept in memory, without copying them.
+     */
+    CharBuffer chars() {
+        return CharBuffer.wrap(buf, 0, count);
+    }
+}
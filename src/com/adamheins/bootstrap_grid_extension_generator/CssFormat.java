@@ -0,0 +1,262 @@
+/**
+ * CssFormat
+ * Immutable set of formatting strings used when printing css.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+final class CssFormat {
+
+    // Default tab of four spaces.
+    private static final String DEFAULT_TAB = "    ";
+
+    // Units that a zero length can be written without.
+    private static final String[] LENGTH_UNITS = { "px", "em", "rem", "ex", "ch", "vw", "vh", "vmin", "vmax", "cm",
+            "mm", "in", "pt", "pc" };
+
+    // Functions whose arguments may mix units, so zeros in them need a unit.
+    private static final String[] MATH_FUNCTIONS = { "calc", "min", "max", "clamp" };
+
+    // Shared formats for readable and minified output.
+    // Assumes you are using bootsrap.min if you generate a minified file.
+    static final CssFormat PRETTY = new CssFormat(false, "\n", " ", ";", DEFAULT_TAB,
+            "@import 'bootstrap.css';\n\n\n");
+    static final CssFormat MINIFIED = new CssFormat(true, "", "", "", "", "@import\"bootstrap.min.css\";");
+
+    // True if values should be shortened.
+    final boolean minify;
+
+    // Formatting strings.
+    final String newLine, space, semiColon, tab;
+
+    // Import of core bootstrap css.
+    final String importRule;
+
+
+    /**
+     * Constructor.
+     */
+    private CssFormat(boolean minify, String newLine, String space, String semiColon, String tab, String importRule) {
+        this.minify = minify;
+        this.newLine = newLine;
+        this.space = space;
+        this.semiColon = semiColon;
+        this.tab = tab;
+        this.importRule = importRule;
+    }
+
+
+    /**
+     * Get the shared format for readable or minified output.
+     * 
+     * @param minify
+     *            - True if output should be minified.
+     * @return The format.
+     */
+    static CssFormat of(boolean minify) {
+        return minify ? MINIFIED : PRETTY;
+    }
+
+
+    /**
+     * Format a value entered by the user. Readable output keeps values as
+     * entered. Minified output drops extra whitespace and writes numbers in
+     * their shortest form, such as .5em for 0.50em and 0 for 0px. The
+     * contents of url() are copied as they are, and zeros inside calc(),
+     * min(), max() and clamp() keep their units, which they need there.
+     * 
+     * @param value
+     *            - The value to format.
+     * @return The formatted value.
+     */
+    String value(String value) {
+        if (!minify)
+            return value;
+
+        value = value.trim();
+
+        // Leave anything containing strings alone.
+        if (value.indexOf('"') != -1 || value.indexOf('\'') != -1)
+            return value;
+
+        StringBuilder out = new StringBuilder(value.length());
+
+        // Number of brackets open inside a math function, or zero if outside
+        // of one.
+        int mathDepth = 0;
+
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+
+            // Collapse whitespace to a single space, or none next to a comma
+            // or inside brackets. Whitespace around brackets is kept, as + and
+            // - in calc() need it.
+            if (Character.isWhitespace(c)) {
+                while (i < value.length() && Character.isWhitespace(value.charAt(i)))
+                    i++;
+                if (out.length() > 0 && i < value.length() && ",(/".indexOf(out.charAt(out.length() - 1)) == -1
+                        && ",)/".indexOf(value.charAt(i)) == -1)
+                    out.append(' ');
+                continue;
+            }
+
+            // Copy anything up to the end of a token.
+            int end = i;
+            while (end < value.length() && !Character.isWhitespace(value.charAt(end))
+                    && !isSeparator(value.charAt(end)))
+                end++;
+
+            if (end == i) {
+                if (c == '(' && mathDepth > 0)
+                    mathDepth++;
+                else if (c == ')' && mathDepth > 0)
+                    mathDepth--;
+                out.append(c);
+                i++;
+            } else if (end < value.length() && value.charAt(end) == '(') {
+                // Function names are copied as they are.
+                String name = value.substring(i, end);
+                out.append(name).append('(');
+                i = end + 1;
+                if (name.equalsIgnoreCase("url")) {
+                    // Urls are not values, so copy them up to the closing
+                    // bracket.
+                    int close = value.indexOf(')', i);
+                    end = close == -1 ? value.length() : close + 1;
+                    out.append(value, i, end);
+                    i = end;
+                } else if (mathDepth > 0 || isMathFunction(name)) {
+                    mathDepth++;
+                }
+            } else {
+                out.append(number(value.substring(i, end), mathDepth > 0));
+                i = end;
+            }
+        }
+        return out.toString();
+    }
+
+
+    /**
+     * Format the name of a property entered by the user. Names are
+     * identifiers rather than values, so minified output only trims them.
+     * 
+     * @param name
+     *            - The name to format.
+     * @return The formatted name.
+     */
+    String name(String name) {
+        return minify ? name.trim() : name;
+    }
+
+
+    /**
+     * Format a percentage. Minified output drops the leading zero of
+     * fractions and the % sign of zero.
+     * 
+     * @param percentage
+     *            - Plain decimal percentage, such as 0.5 or 25.
+     * @return The formatted percentage including the % sign.
+     */
+    String percentage(String percentage) {
+        if (!minify)
+            return percentage + "%";
+        if (percentage.equals("0"))
+            return "0";
+        if (percentage.startsWith("0."))
+            return percentage.substring(1) + "%";
+        return percentage + "%";
+    }
+
+
+    /**
+     * @return True if this character ends a token.
+     */
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == '(' || c == ')' || c == '/';
+    }
+
+
+    /**
+     * @return True if the function computes a value from its arguments,
+     *         which may mix units, such as calc().
+     */
+    private static boolean isMathFunction(String name) {
+        // Skip a vendor prefix, such as -webkit-calc.
+        int start = name.startsWith("-") ? name.indexOf('-', 1) + 1 : 0;
+        for (String function : MATH_FUNCTIONS) {
+            if (name.regionMatches(true, start, function, 0, function.length())
+                    && name.length() - start == function.length())
+                return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Write a token in its shortest form if it is a number, with or without a
+     * unit. Zero lengths keep their unit if keepUnit is true.
+     */
+    private static String number(String token, boolean keepUnit) {
+
+        // Split into sign, digits and unit.
+        int start = token.charAt(0) == '-' || token.charAt(0) == '+' ? 1 : 0;
+        int end = start;
+        boolean point = false;
+        while (end < token.length()
+                && (Character.isDigit(token.charAt(end)) || (!point && token.charAt(end) == '.'))) {
+            if (token.charAt(end) == '.')
+                point = true;
+            end++;
+        }
+        String digits = token.substring(start, end);
+        String unit = token.substring(end);
+
+        // Not a number, such as a file name like 01.png.
+        if (digits.isEmpty() || digits.endsWith(".") || !isUnit(unit))
+            return token;
+
+        // Drop leading zeros and trailing zeros after the point.
+        int first = 0;
+        while (first < digits.length() - 1 && digits.charAt(first) == '0' && digits.charAt(first + 1) != '.')
+            first++;
+        int last = digits.length();
+        if (point) {
+            while (digits.charAt(last - 1) == '0')
+                last--;
+            if (digits.charAt(last - 1) == '.')
+                last--;
+        }
+        digits = first < last ? digits.substring(first, last) : "0";
+        if (digits.startsWith("0."))
+            digits = digits.substring(1);
+
+        // A zero length does not need a unit or sign, except inside a math
+        // function.
+        if (digits.equals("0") && !keepUnit) {
+            for (String lengthUnit : LENGTH_UNITS) {
+                if (unit.equalsIgnoreCase(lengthUnit))
+                    return "0";
+            }
+            return "0" + unit;
+        }
+
+        return token.substring(0, start) + digits + unit;
+    }
+
+
+    /**
+     * @return True if the text can follow a number as its unit: nothing, a %
+     *         sign or letters only.
+     */
+    private static boolean isUnit(String unit) {
+        if (unit.equals("%"))
+            return true;
+        for (int i = 0; i < unit.length(); i++) {
+            if (!Character.isLetter(unit.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * GenerationMetrics
+ * Counts the work done by a generator: stylesheets and rules rendered, bytes
+ * written and the time spent in each phase.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Every generator keeps its own metrics, which may be updated from many
+ * threads at once. They can be published over JMX with
+ * {@link #register(String)} or written out as JSON or in the Prometheus text
+ * format. Rendering time is split into phases:
+ * <ul>
+ * <li>header: printing the initial properties shared by all columns,</li>
+ * <li>column types: printing each column type, or the optimized rules of all
+ * of them,</li>
+ * <li>write: encoding and writing the rendered output, or flushing it to a
+ * writer.</li>
+ * </ul>
+ * Phases of parallel renders overlap, so they may add up to more than the
+ * total generation time.
+ */
+public class GenerationMetrics implements GenerationMetricsMBean {
+
+    // Domain that metrics are registered under.
+    public static final String JMX_DOMAIN = "com.adamheins.bootstrap_grid_extension_generator";
+
+    // Nanoseconds in a second.
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    // Counters.
+    private final AtomicLong generations = new AtomicLong();
+    private final AtomicLong rulesEmitted = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong columnTypes = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    // Time spent in each phase.
+    private final AtomicLong generationNanos = new AtomicLong();
+    private final AtomicLong headerNanos = new AtomicLong();
+    private final AtomicLong columnTypeNanos = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+
+
+    /**
+     * Record a rendered stylesheet.
+     */
+    void recordGeneration(long nanos) {
+        generations.incrementAndGet();
+        generationNanos.addAndGet(nanos);
+    }
+
+
+    /**
+     * Record the initial properties being printed.
+     */
+    void recordHeader(long nanos) {
+        rulesEmitted.incrementAndGet();
+        headerNanos.addAndGet(nanos);
+    }
+
+
+    /**
+     * Record one or more column types being printed.
+     */
+    void recordColumnTypes(int types, int rules, long nanos) {
+        columnTypes.addAndGet(types);
+        rulesEmitted.addAndGet(rules);
+        columnTypeNanos.addAndGet(nanos);
+    }
+
+
+    /**
+     * Record output being written.
+     * 
+     * @param bytes
+     *            - Number of bytes written, or zero if not known.
+     */
+    void recordWrite(long bytes, long nanos) {
+        bytesWritten.addAndGet(bytes);
+        writeNanos.addAndGet(nanos);
+    }
+
+
+    /**
+     * Record a cache lookup.
+     */
+    void recordCacheLookup(boolean hit) {
+        (hit ? cacheHits : cacheMisses).incrementAndGet();
+    }
+
+
+    @Override
+    public long getGenerations() {
+        return generations.get();
+    }
+
+
+    @Override
+    public long getRulesEmitted() {
+        return rulesEmitted.get();
+    }
+
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+
+    @Override
+    public long getColumnTypes() {
+        return columnTypes.get();
+    }
+
+
+    @Override
+    public long getGenerationNanos() {
+        return generationNanos.get();
+    }
+
+
+    @Override
+    public long getHeaderNanos() {
+        return headerNanos.get();
+    }
+
+
+    @Override
+    public long getColumnTypeNanos() {
+        return columnTypeNanos.get();
+    }
+
+
+    @Override
+    public long getWriteNanos() {
+        return writeNanos.get();
+    }
+
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+
+    @Override
+    public void reset() {
+        for (AtomicLong counter : new AtomicLong[] { generations, rulesEmitted, bytesWritten, columnTypes,
+                cacheHits, cacheMisses, generationNanos, headerNanos, columnTypeNanos, writeNanos })
+            counter.set(0);
+    }
+
+
+    /**
+     * Publish these metrics on the platform MBean server.
+     * 
+     * @param name
+     *            - Name that tells these metrics apart from those of other
+     *            generators.
+     * @return The name the metrics are registered under.
+     * @throws JMException
+     *             If the metrics cannot be registered, such as when the name
+     *             is already taken.
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=GenerationMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+
+    /**
+     * @return The metrics as a JSON object.
+     */
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"generations\":%d,\"rulesEmitted\":%d,\"bytesWritten\":%d,"
+                + "\"columnTypes\":%d,\"cacheHits\":%d,\"cacheMisses\":%d,\"nanos\":{\"generation\":%d,"
+                + "\"header\":%d,\"columnTypes\":%d,\"write\":%d}}", getGenerations(), getRulesEmitted(),
+                getBytesWritten(), getColumnTypes(), getCacheHits(), getCacheMisses(), getGenerationNanos(),
+                getHeaderNanos(), getColumnTypeNanos(), getWriteNanos());
+    }
+
+
+    /**
+     * @return The metrics in the Prometheus text exposition format.
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder();
+        counter(out, "generations_total", "Stylesheets rendered.", getGenerations());
+        counter(out, "rules_total", "Css rules printed.", getRulesEmitted());
+        counter(out, "written_bytes_total", "Bytes written to files, streams and channels.", getBytesWritten());
+        counter(out, "column_types_total", "Column type blocks printed.", getColumnTypes());
+        counter(out, "cache_hits_total", "Stylesheets found in a cache.", getCacheHits());
+        counter(out, "cache_misses_total", "Stylesheets a cache had to render.", getCacheMisses());
+        counter(out, "generation_seconds_total", "Time spent rendering whole stylesheets.", getGenerationNanos()
+                / NANOS_PER_SECOND);
+
+        String name = "bootstrap_grid_phase_seconds_total";
+        out.append("# HELP ").append(name).append(" Time spent in each phase of rendering.\n");
+        out.append("# TYPE ").append(name).append(" counter\n");
+        phase(out, name, "header", getHeaderNanos());
+        phase(out, name, "column_types", getColumnTypeNanos());
+        phase(out, name, "write", getWriteNanos());
+        return out.toString();
+    }
+
+
+    /**
+     * Append a counter in the Prometheus text format.
+     */
+    private static void counter(StringBuilder out, String name, String help, Object value) {
+        name = "bootstrap_grid_" + name;
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+
+    /**
+     * Append the time of one phase in the Prometheus text format.
+     */
+    private static void phase(StringBuilder out, String name, String phase, long nanos) {
+        out.append(name).append("{phase=\"").append(phase).append("\"} ").append(nanos / NANOS_PER_SECOND)
+                .append('\n');
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * GenerationMetricsMBean
+ * Management interface of the metrics a generator collects.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+/**
+ * Counters are totals since the generator was created or the metrics were
+ * last reset. Times are in nanoseconds.
+ */
+public interface GenerationMetricsMBean {
+
+    /**
+     * @return Number of stylesheets rendered.
+     */
+    long getGenerations();
+
+    /**
+     * @return Number of css rules printed.
+     */
+    long getRulesEmitted();
+
+    /**
+     * @return Number of bytes written to files, streams and channels.
+     */
+    long getBytesWritten();
+
+    /**
+     * @return Number of column type blocks printed.
+     */
+    long getColumnTypes();
+
+    /**
+     * @return Time spent rendering whole stylesheets.
+     */
+    long getGenerationNanos();
+
+    /**
+     * @return Time spent printing the initial properties.
+     */
+    long getHeaderNanos();
+
+    /**
+     * @return Time spent printing column types.
+     */
+    long getColumnTypeNanos();
+
+    /**
+     * @return Time spent encoding, flushing and writing output.
+     */
+    long getWriteNanos();
+
+    /**
+     * @return Number of stylesheets found in a cache.
+     */
+    long getCacheHits();
+
+    /**
+     * @return Number of stylesheets that a cache had to render.
+     */
+    long getCacheMisses();
+
+    /**
+     * Set every counter back to zero.
+     */
+    void reset();
+}
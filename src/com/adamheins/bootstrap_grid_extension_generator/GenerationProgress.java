@@ -0,0 +1,19 @@
+/**
+ * GenerationProgress
+ * Receives progress updates while css is being generated.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+public interface GenerationProgress {
+
+    /**
+     * Called periodically as rules are printed, on the generating thread.
+     * 
+     * @param emitted
+     *            - Number of rules printed so far.
+     * @param total
+     *            - Total number of rules to be printed.
+     */
+    void rulesEmitted(int emitted, int total);
+}
@@ -0,0 +1,540 @@
+/**
+ * GridServer
+ * Embedded HTTP server that generates grid stylesheets on demand, so that
+ * tools such as theme editors can fetch css without generated files.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves two paths:
+ *
+ * <pre>
+ * /grid.css   the stylesheet of a grid
+ * /metrics    generation metrics in the Prometheus text format
+ * </pre>
+ *
+ * The grid is given either as query parameters of a GET request, for
+ * example:
+ *
+ * <pre>
+ * /grid.css?columns=20&amp;minify=true&amp;property=position:relative&amp;property=float:left
+ *     &amp;type=col-xs:0px&amp;type=col-sm:768px
+ * </pre>
+ *
+ * or as a POST request whose body is either a grid spec in the format of
+ * {@link GridSpecFile} or a JSON object, for example:
+ *
+ * <pre>
+ * {"columns": 20, "minify": true, "properties": {"position": "relative", "float": "left"},
+ *     "types": {"col-xs": "0px", "col-sm": "768px"}}
+ * </pre>
+ *
+ * Properties and types may also be given as arrays of [name, value] pairs,
+ * or in any other form the tables accept when pasted, see {@link TableText}.
+ * Bodies are read as JSON if their content type is application/json or they
+ * start with {. Stylesheets are kept in a {@link StylesheetCache}
+ * bounded in size, which also makes concurrent requests for the same grid
+ * share a single render. Each response carries an ETag derived from the grid
+ * and generator settings, so a client revalidating a GET request with
+ * If-None-Match is answered without rendering anything.
+ */
+public class GridServer {
+
+    // Defaults.
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_COLUMNS = 1000;
+
+    // Largest accepted request body in bytes.
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    // Usage message.
+    private static final String USAGE = "Usage: java -cp Bootstrap-Grid-Extension-Generator.jar "
+            + GridServer.class.getName() + " [-b address] [-j threads] [-p digits] [-O] [-C cache-bytes]"
+            + " [-m bytes] [-n columns] [port]\n"
+            + "  port          port to listen on (default: " + DEFAULT_PORT + ")\n"
+            + "  -b address    address to listen on (default: loopback only)\n"
+            + "  -j threads    number of requests to handle concurrently (default: 4 per processor)\n"
+            + "  -p digits     decimal places to round percentages to (default: "
+            + BootstrapGridExtensionFileGenerator.DEFAULT_PRECISION + ")\n"
+            + "  -O            prune and compact rules to reduce output size\n"
+            + "  -C bytes      limit on the total size of cached stylesheets (default: "
+            + StylesheetCache.DEFAULT_MAX_BYTES + ")\n"
+            + "  -m bytes      refuse grids whose css would be larger than this\n"
+            + "  -n columns    refuse grids with more columns than this (default: " + DEFAULT_MAX_COLUMNS + ")";
+
+    // Exit statuses.
+    private static final int EXIT_FAILURE = 1;
+    private static final int EXIT_USAGE = 2;
+
+    // HTTP statuses used.
+    private static final int OK = 200;
+    private static final int NOT_MODIFIED = 304;
+    private static final int BAD_REQUEST = 400;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int PAYLOAD_TOO_LARGE = 413;
+
+    // Character set of requests and responses.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Generator and the cache in front of it.
+    private final BootstrapGridExtensionFileGenerator generator;
+    private final StylesheetCache cache;
+
+    // Largest allowed stylesheet size in bytes and number of columns.
+    private final long maxSize;
+    private final int maxColumns;
+
+    // Server and the threads handling its requests, or null if not started.
+    private HttpServer server;
+    private ExecutorService pool;
+
+
+    /**
+     * A request that cannot be served, and the status to answer it with.
+     */
+    static class RequestException extends Exception {
+
+        // Serial Version UID.
+        private static final long serialVersionUID = 5410587063247962174L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param generator
+     *            - Generator used to render stylesheets.
+     * @param cacheBytes
+     *            - Limit on the total size of stylesheets kept in memory.
+     * @param maxSize
+     *            - Largest allowed stylesheet size in bytes, or
+     *            Long.MAX_VALUE for no limit.
+     * @param maxColumns
+     *            - Largest allowed number of columns.
+     */
+    public GridServer(BootstrapGridExtensionFileGenerator generator, long cacheBytes, long maxSize, int maxColumns) {
+        this.generator = generator;
+        this.cache = new StylesheetCache(generator, cacheBytes, null);
+        this.maxSize = maxSize;
+        this.maxColumns = maxColumns;
+    }
+
+
+    /**
+     * Start serving requests.
+     *
+     * @param address
+     *            - Address to listen on. Port 0 picks a free port.
+     * @param threads
+     *            - Number of requests to handle concurrently.
+     * @throws IOException
+     *             If the address cannot be bound.
+     */
+    public synchronized void start(InetSocketAddress address, int threads) throws IOException {
+        if (server != null)
+            throw new IllegalStateException("Server already started");
+
+        server = HttpServer.create(address, 0);
+        server.createContext("/grid.css", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serveGrid(exchange);
+            }
+        });
+        server.createContext("/metrics", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                serveMetrics(exchange);
+            }
+        });
+
+        pool = Executors.newFixedThreadPool(threads);
+        server.setExecutor(pool);
+        server.start();
+    }
+
+
+    /**
+     * Stop serving, waiting up to a second for requests being handled.
+     */
+    public synchronized void stop() {
+        if (server == null)
+            return;
+        server.stop(1);
+        pool.shutdownNow();
+        server = null;
+        pool = null;
+    }
+
+
+    /**
+     * @return The address the server is listening on.
+     */
+    public synchronized InetSocketAddress getAddress() {
+        if (server == null)
+            throw new IllegalStateException("Server not started");
+        return server.getAddress();
+    }
+
+
+    /**
+     * @return Metrics of the generator, including cache hits and misses.
+     */
+    public GenerationMetrics getMetrics() {
+        return generator.getMetrics();
+    }
+
+
+    /**
+     * Answer a request for a stylesheet.
+     */
+    private void serveGrid(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            boolean post = method.equals("POST");
+            boolean head = method.equals("HEAD");
+            if (!post && !head && !method.equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD, POST");
+                throw new RequestException(METHOD_NOT_ALLOWED, "Method " + method + " is not allowed");
+            }
+
+            GridSpec spec = post ? readBody(exchange) : readQuery(exchange.getRequestURI().getRawQuery());
+            if (spec.getNumColumns() > maxColumns)
+                throw new RequestException(BAD_REQUEST, "Number of columns must be at most " + maxColumns);
+
+            // Unoptimized sizes are computed without rendering, so those
+            // grids are refused before any work. Optimized sizes are only
+            // known once rendered, so they are checked on the cached
+            // stylesheet below, keeping revalidations and cache hits free.
+            if (maxSize < Long.MAX_VALUE && !generator.isOptimized())
+                checkSize(generator.computeSize(spec));
+
+            // The key covers everything the stylesheet depends on, so it
+            // makes a strong validator without rendering anything.
+            String etag = '"' + cache.key(spec) + '"';
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", etag);
+            headers.set("Cache-Control", "no-cache");
+            if (!post && matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(NOT_MODIFIED, -1);
+                return;
+            }
+
+            byte[] css = cache.render(spec);
+            if (css.length > maxSize) {
+                headers.remove("ETag");
+                headers.remove("Cache-Control");
+                checkSize(css.length);
+            }
+            headers.set("Content-Type", "text/css; charset=" + BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET);
+            send(exchange, OK, css, head);
+        } catch (RequestException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+
+    /**
+     * Refuse a stylesheet over the size limit.
+     */
+    private void checkSize(long size) throws RequestException {
+        if (size > maxSize)
+            throw new RequestException(PAYLOAD_TOO_LARGE, "Stylesheet would be " + size + " bytes, over the limit of "
+                    + maxSize);
+    }
+
+
+    /**
+     * Answer a request for the metrics.
+     */
+    private void serveMetrics(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                sendError(exchange, METHOD_NOT_ALLOWED, "Method " + method + " is not allowed");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            send(exchange, OK, generator.getMetrics().toPrometheus().getBytes(UTF_8), method.equals("HEAD"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+
+    /**
+     * Check whether an If-None-Match header matches an ETag.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Read a grid from the query parameters of a request.
+     */
+    static GridSpec readQuery(String query) throws RequestException {
+
+        List<Property> properties = new ArrayList<Property>();
+        List<Breakpoint> breakpoints = new ArrayList<Breakpoint>();
+        int numColumns = -1;
+        boolean minify = false;
+
+        try {
+            for (String param : query == null ? new String[0] : query.split("&")) {
+                if (param.isEmpty())
+                    continue;
+                int split = param.indexOf('=');
+                String key = decode(split < 0 ? param : param.substring(0, split));
+                String value = split < 0 ? "" : decode(param.substring(split + 1));
+
+                if (key.equals("columns")) {
+                    try {
+                        numColumns = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        throw new RequestException(BAD_REQUEST, "columns must be a number");
+                    }
+                } else if (key.equals("minify")) {
+                    minify = Boolean.parseBoolean(value);
+                } else if (key.equals("property") || key.equals("type")) {
+                    int colon = value.indexOf(':');
+                    if (colon <= 0)
+                        throw new RequestException(BAD_REQUEST, "expected " + key + "=name:value");
+                    String name = value.substring(0, colon).trim();
+                    String rest = value.substring(colon + 1).trim();
+                    if (key.equals("property"))
+                        properties.add(new Property(name, rest));
+                    else
+                        breakpoints.add(new Breakpoint(name, rest));
+                } else {
+                    throw new RequestException(BAD_REQUEST, "unknown parameter " + key);
+                }
+            }
+            return new GridSpec(properties, breakpoints, numColumns, minify);
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(BAD_REQUEST, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Decode a query parameter.
+     */
+    private static String decode(String s) {
+        try {
+            return URLDecoder.decode(s, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every Java platform is required to support UTF-8.
+            throw new IllegalStateException(e);
+        }
+    }
+
+
+    /**
+     * Read a grid from a request body, as JSON or in the grid spec format.
+     */
+    private static GridSpec readBody(HttpExchange exchange) throws IOException, RequestException {
+
+        // Read the whole body first, so that errors reading it are not
+        // mistaken for errors in the spec.
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int n;
+        while ((n = in.read(chunk)) != -1) {
+            body.write(chunk, 0, n);
+            if (body.size() > MAX_BODY_BYTES)
+                throw new RequestException(PAYLOAD_TOO_LARGE, "Request body is over " + MAX_BODY_BYTES + " bytes");
+        }
+
+        String text = new String(body.toByteArray(), UTF_8);
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if ((type != null && type.trim().toLowerCase(Locale.ROOT).startsWith("application/json"))
+                || text.trim().startsWith("{"))
+            return readJson(text);
+
+        try {
+            return GridSpecFile.read(new StringReader(text), "request").getSpec();
+        } catch (IOException e) {
+            throw new RequestException(BAD_REQUEST, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(BAD_REQUEST, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Read a grid from a JSON object with the same keys as the query
+     * parameters, except that properties and types hold all of them.
+     */
+    static GridSpec readJson(String json) throws RequestException {
+
+        Object[][] properties = new Object[0][];
+        Object[][] types = new Object[0][];
+        int numColumns = -1;
+        boolean minify = false;
+
+        try {
+            Object value = TableText.readJson(json);
+            if (!(value instanceof Map))
+                throw new RequestException(BAD_REQUEST, "expected a JSON object");
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                String key = (String) entry.getKey();
+                if (key.equals("columns")) {
+                    try {
+                        numColumns = Integer.parseInt(String.valueOf(entry.getValue()));
+                    } catch (NumberFormatException e) {
+                        throw new RequestException(BAD_REQUEST, "columns must be a number");
+                    }
+                } else if (key.equals("minify")) {
+                    minify = Boolean.parseBoolean(String.valueOf(entry.getValue()));
+                } else if (key.equals("properties")) {
+                    properties = TableText.rows(entry.getValue());
+                } else if (key.equals("types")) {
+                    types = TableText.rows(entry.getValue());
+                } else {
+                    throw new RequestException(BAD_REQUEST, "unknown key " + key);
+                }
+            }
+            return GridSpec.fromTableData(properties, types, numColumns, minify);
+        } catch (IllegalArgumentException e) {
+            throw new RequestException(BAD_REQUEST, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Send a response with a known length.
+     */
+    private static void send(HttpExchange exchange, int status, byte[] body, boolean head) throws IOException {
+        if (head) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+
+    /**
+     * Send an error response with a plain text message.
+     */
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(exchange, status, (message + "\n").getBytes(UTF_8), exchange.getRequestMethod().equals("HEAD"));
+    }
+
+
+    /**
+     * Main method.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+
+        String host = null;
+        int port = DEFAULT_PORT;
+        int threads = 4 * Runtime.getRuntime().availableProcessors();
+        int precision = BootstrapGridExtensionFileGenerator.DEFAULT_PRECISION;
+        boolean optimize = false;
+        long cacheBytes = StylesheetCache.DEFAULT_MAX_BYTES;
+        long maxSize = Long.MAX_VALUE;
+        int maxColumns = DEFAULT_MAX_COLUMNS;
+
+        // Parse options.
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-b"))
+                    host = args[++i];
+                else if (args[i].equals("-j"))
+                    threads = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-p"))
+                    precision = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-O"))
+                    optimize = true;
+                else if (args[i].equals("-C"))
+                    cacheBytes = Long.parseLong(args[++i]);
+                else if (args[i].equals("-m"))
+                    maxSize = Long.parseLong(args[++i]);
+                else if (args[i].equals("-n"))
+                    maxColumns = Integer.parseInt(args[++i]);
+                else if (args[i].equals("-h") || args[i].equals("--help")) {
+                    System.out.println(USAGE);
+                    return;
+                } else if (args[i].startsWith("-"))
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+                else
+                    port = Integer.parseInt(args[i]);
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "Missing option value" : e.getMessage());
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        if (threads < 1 || precision < 0 || cacheBytes < 0 || maxSize < 0 || maxColumns < 1 || port < 0
+                || port > 65535) {
+            System.err.println(USAGE);
+            System.exit(EXIT_USAGE);
+        }
+
+        GridServer server = new GridServer(new BootstrapGridExtensionFileGenerator(precision, optimize),
+                cacheBytes, maxSize, maxColumns);
+        try {
+            InetSocketAddress address = host == null ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                    : new InetSocketAddress(host, port);
+            server.start(address, threads);
+        } catch (IOException e) {
+            System.err.println("Cannot listen on port " + port + ": " + e.getMessage());
+            System.exit(EXIT_FAILURE);
+        }
+        System.out.println("Serving grids on http://" + server.getAddress().getHostString() + ":"
+                + server.getAddress().getPort() + "/grid.css");
+    }
+}
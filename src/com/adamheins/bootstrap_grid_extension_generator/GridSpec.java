@@ -0,0 +1,195 @@
+/**
+ * GridSpec
+ * Everything that determines a generated grid: the column properties, the
+ * column types, the number of columns and whether the output is minified.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A spec is checked when it is created, so the generator never sees a missing
+ * cell. Column types keep the order they were entered in, which is the order
+ * their rules cascade in. Widths may use different units, so they are not
+ * sorted; bootstrap's cascade relies on wider media queries coming later, so
+ * users should enter them narrowest first. Specs are immutable and compare equal when
+ * they would generate the same stylesheet, so they can be used as cache keys.
+ */
+public final class GridSpec {
+
+    // Column properties and column types, in the order entered.
+    private final List<Property> properties;
+    private final List<Breakpoint> breakpoints;
+
+    // Number of columns.
+    private final int numColumns;
+
+    // True if the output should be minified.
+    private final boolean minify;
+
+    // Hash code, computed when first needed.
+    private int hash;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param properties
+     *            - Properties shared by all columns.
+     * @param breakpoints
+     *            - Column types, in any order.
+     * @param numColumns
+     *            - Number of columns.
+     * @param minify
+     *            - True if the output should be minified.
+     * @throws IllegalArgumentException
+     *             If there are no properties or column types, or fewer than
+     *             one column.
+     */
+    public GridSpec(List<Property> properties, List<Breakpoint> breakpoints, int numColumns, boolean minify) {
+        if (numColumns < 1)
+            throw new IllegalArgumentException("Number of columns must be at least 1: " + numColumns);
+        if (properties.isEmpty())
+            throw new IllegalArgumentException("At least one column property is required");
+        if (breakpoints.isEmpty())
+            throw new IllegalArgumentException("At least one column type is required");
+
+        Property[] propertyArray = properties.toArray(new Property[properties.size()]);
+        Breakpoint[] breakpointArray = breakpoints.toArray(new Breakpoint[breakpoints.size()]);
+        for (Property property : propertyArray) {
+            if (property == null)
+                throw new IllegalArgumentException("Column property is missing");
+        }
+        for (Breakpoint breakpoint : breakpointArray) {
+            if (breakpoint == null)
+                throw new IllegalArgumentException("Column type is missing");
+        }
+
+        this.properties = Collections.unmodifiableList(Arrays.asList(propertyArray));
+        this.breakpoints = Collections.unmodifiableList(Arrays.asList(breakpointArray));
+        this.numColumns = numColumns;
+        this.minify = minify;
+    }
+
+
+    /**
+     * Create a spec from the data of the GUI tables.
+     * 
+     * @param propertyData
+     *            - Column property table data, rows of name and value.
+     * @param divisionData
+     *            - Column type table data, rows of name and minimum viewport
+     *            width.
+     * @param numColumns
+     *            - Number of columns.
+     * @param minify
+     *            - True if the output should be minified.
+     * @return The spec.
+     * @throws IllegalArgumentException
+     *             If a cell is missing or the spec is otherwise invalid.
+     */
+    public static GridSpec fromTableData(Object[][] propertyData, Object[][] divisionData, int numColumns,
+            boolean minify) {
+
+        List<Property> properties = new ArrayList<Property>(propertyData.length);
+        for (Object[] row : propertyData)
+            properties.add(new Property(cell(row, 0), cell(row, 1)));
+
+        List<Breakpoint> breakpoints = new ArrayList<Breakpoint>(divisionData.length);
+        for (Object[] row : divisionData)
+            breakpoints.add(new Breakpoint(cell(row, 0), cell(row, 1)));
+
+        return new GridSpec(properties, breakpoints, numColumns, minify);
+    }
+
+
+    /**
+     * @return A cell of a table row as a string, or null if it is empty.
+     */
+    private static String cell(Object[] row, int column) {
+        return column < row.length && row[column] != null ? row[column].toString() : null;
+    }
+
+
+    /**
+     * @return Properties shared by all columns, in order.
+     */
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+
+    /**
+     * @return Column types, in the order entered.
+     */
+    public List<Breakpoint> getBreakpoints() {
+        return breakpoints;
+    }
+
+
+    /**
+     * @return Number of columns.
+     */
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+
+    /**
+     * @return True if the output should be minified.
+     */
+    public boolean isMinify() {
+        return minify;
+    }
+
+
+    /**
+     * Create a spec of the same grid with a different number of columns or
+     * minification, such as to generate several variants of a grid.
+     * 
+     * @param numColumns
+     *            - Number of columns.
+     * @param minify
+     *            - True if the output should be minified.
+     * @return The spec, sharing the properties and column types of this one.
+     * @throws IllegalArgumentException
+     *             If there are fewer than one column.
+     */
+    public GridSpec withShape(int numColumns, boolean minify) {
+        return new GridSpec(properties, breakpoints, numColumns, minify);
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this)
+            return true;
+        if (!(obj instanceof GridSpec))
+            return false;
+        GridSpec other = (GridSpec) obj;
+        return numColumns == other.numColumns && minify == other.minify && hashCode() == other.hashCode()
+                && properties.equals(other.properties) && breakpoints.equals(other.breakpoints);
+    }
+
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * (31 * properties.hashCode() + breakpoints.hashCode()) + numColumns) + (minify ? 1 : 0);
+            hash = h;
+        }
+        return h;
+    }
+
+
+    @Override
+    public String toString() {
+        return "GridSpec[columns=" + numColumns + ", minify=" + minify + ", properties=" + properties
+                + ", types=" + breakpoints + "]";
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * GridSpecFile
+ * Reads a grid specification from a plain text file so that grids can be
+ * generated without the GUI.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A grid spec file mirrors the fields of the GUI. Blank lines and lines
+ * starting with # are ignored. For example:
+ *
+ * <pre>
+ * columns = 20
+ * minify = false
+ * output = grid_extension.css
+ *
+ * [properties]
+ * position: relative
+ * float: left
+ *
+ * [types]
+ * col-xs: 0px
+ * col-sm: 768px
+ * </pre>
+ *
+ * The output file is resolved relative to the directory of the spec file and
+ * defaults to the name of the spec file with a .css extension.
+ */
+public class GridSpecFile {
+
+    // File extension of grid spec files.
+    public static final String EXTENSION = ".grid";
+
+    // Character set of spec files.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Source of this spec, or null if it was not read from a file.
+    private final File source;
+
+    // Grid and output file name, equivalent to the GUI tables and fields.
+    private final GridSpec spec;
+    private final String fileName;
+
+
+    /**
+     * Constructor.
+     */
+    private GridSpecFile(File source, GridSpec spec, String fileName) {
+        this.source = source;
+        this.spec = spec;
+        this.fileName = fileName;
+    }
+
+
+    /**
+     * Parse a grid spec file.
+     *
+     * @param file
+     *            - The spec file to read.
+     * @return The parsed spec.
+     * @throws IOException
+     *             If the file cannot be read or is malformed.
+     */
+    public static GridSpecFile read(File file) throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(file), UTF_8);
+        try {
+            return read(in, file.getPath(), file);
+        } finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Parse a grid spec that was not read from a file, such as one sent over
+     * the network. The output file of such a spec is resolved against the
+     * working directory.
+     *
+     * @param in
+     *            - Spec to read. Not closed.
+     * @param name
+     *            - Name of the spec used in error messages.
+     * @return The parsed spec.
+     * @throws IOException
+     *             If the spec cannot be read or is malformed.
+     */
+    public static GridSpecFile read(Reader in, String name) throws IOException {
+        return read(in, name, null);
+    }
+
+
+    /**
+     * Parse a grid spec.
+     */
+    private static GridSpecFile read(Reader reader, String name, File file) throws IOException {
+
+        List<Property> properties = new ArrayList<Property>();
+        List<Breakpoint> breakpoints = new ArrayList<Breakpoint>();
+        int numColumns = -1;
+        boolean minify = false;
+        String output = null;
+
+        BufferedReader in = new BufferedReader(reader);
+
+        // Section being read: properties, types or settings.
+        List<?> section = null;
+        String line;
+        int lineNumber = 0;
+
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+
+            // Skip blank lines and comments.
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+
+            // Start of a table section.
+            if (line.charAt(0) == '[') {
+                if (line.equals("[properties]"))
+                    section = properties;
+                else if (line.equals("[types]"))
+                    section = breakpoints;
+                else
+                    throw error(name, lineNumber, "unknown section " + line);
+                continue;
+            }
+
+            // Table rows are separated by a colon, settings by an equals
+            // sign.
+            int split = line.indexOf(section == null ? '=' : ':');
+            if (split <= 0)
+                throw error(name, lineNumber, "expected " + (section == null ? "key = value" : "name: value"));
+            String key = line.substring(0, split).trim();
+            String value = line.substring(split + 1).trim();
+
+            if (section != null) {
+                try {
+                    if (section == properties)
+                        properties.add(new Property(key, value));
+                    else
+                        breakpoints.add(new Breakpoint(key, value));
+                } catch (IllegalArgumentException e) {
+                    throw error(name, lineNumber, e.getMessage());
+                }
+            } else if (key.equals("columns")) {
+                try {
+                    numColumns = Integer.parseInt(value);
+                } catch (NumberFormatException e) {
+                    throw error(name, lineNumber, "columns must be a number");
+                }
+            } else if (key.equals("minify")) {
+                minify = Boolean.parseBoolean(value);
+            } else if (key.equals("output")) {
+                output = value;
+            } else {
+                throw error(name, lineNumber, "unknown setting " + key);
+            }
+        }
+
+        // Check that the spec is complete.
+        if (numColumns < 1)
+            throw new IOException(name + ": columns must be set to a positive number");
+        if (properties.isEmpty())
+            throw new IOException(name + ": [properties] section is missing or empty");
+        if (breakpoints.isEmpty())
+            throw new IOException(name + ": [types] section is missing or empty");
+
+        // Default the output name to that of the spec file.
+        if (output == null) {
+            output = file == null ? name : file.getName();
+            if (output.endsWith(EXTENSION))
+                output = output.substring(0, output.length() - EXTENSION.length());
+        }
+
+        return new GridSpecFile(file, new GridSpec(properties, breakpoints, numColumns, minify), output);
+    }
+
+
+    /**
+     * Create an exception describing a malformed line.
+     */
+    private static IOException error(String name, int lineNumber, String message) {
+        return new IOException(name + ":" + lineNumber + ": " + message);
+    }
+
+
+    /**
+     * Resolve the file this spec should be generated to.
+     *
+     * @param outputDirectory
+     *            - Directory to place output in, or null to place it next to
+     *            the spec file.
+     * @return The output file.
+     */
+    public File getOutputFile(File outputDirectory) {
+        String name = BootstrapGridExtensionFileGenerator.formatFileName(fileName);
+
+        File output = new File(name);
+        if (outputDirectory != null)
+            return new File(outputDirectory, output.getName());
+        if (output.isAbsolute() || source == null)
+            return output;
+        return new File(source.getAbsoluteFile().getParentFile(), name);
+    }
+
+
+    /**
+     * @return The spec file this was read from, or null if it was not read
+     *         from a file.
+     */
+    public File getSource() {
+        return source;
+    }
+
+
+    /**
+     * @return The grid to generate.
+     */
+    public GridSpec getSpec() {
+        return spec;
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * GridSpecWatcher
+ * Watches grid spec files and regenerates their css files whenever they are
+ * saved.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Editors often save a file with several writes or by replacing it, so
+ * changes are collected until none have arrived for a short quiet period
+ * before anything is regenerated. Files are regenerated with an
+ * {@link IncrementalGenerator} that stays warm between changes, so only the
+ * column types that changed are rendered.
+ */
+public class GridSpecWatcher {
+
+    // Default quiet period after a change before regenerating.
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 50;
+
+    // Nanoseconds in a millisecond.
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    // Generator that keeps the fragments of every file between changes.
+    private final IncrementalGenerator generator;
+
+    // Directory to write output to, or null to write next to each spec.
+    private final File outputDirectory;
+
+    // Quiet period after a change before regenerating.
+    private final long debounceMillis;
+
+    // Stream that results are reported to.
+    private final PrintStream report;
+
+
+    /**
+     * Constructor.
+     *
+     * @param generator
+     *            - Generator to regenerate files with.
+     * @param outputDirectory
+     *            - Directory to write output to, or null to write next to
+     *            each spec.
+     * @param debounceMillis
+     *            - Quiet period after a change before regenerating.
+     * @param report
+     *            - Stream that results are reported to.
+     */
+    public GridSpecWatcher(IncrementalGenerator generator, File outputDirectory, long debounceMillis,
+            PrintStream report) {
+        this.generator = generator;
+        this.outputDirectory = outputDirectory;
+        this.debounceMillis = debounceMillis;
+        this.report = report;
+    }
+
+
+    /**
+     * Generate each spec file and then regenerate it whenever it changes.
+     * Does not return unless interrupted.
+     *
+     * @param specs
+     *            - Spec files to watch.
+     * @throws IOException
+     *             If the directories holding the specs cannot be watched.
+     * @throws InterruptedException
+     *             If interrupted while waiting for changes.
+     */
+    public void watch(List<File> specs) throws IOException, InterruptedException {
+
+        WatchService watcher = FileSystems.getDefault().newWatchService();
+        try {
+            // Watch the directory of each spec, as editors may replace the
+            // file rather than write to it.
+            Set<Path> watched = new LinkedHashSet<Path>();
+            Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+            for (File spec : specs) {
+                Path path = spec.toPath().toAbsolutePath().normalize();
+                watched.add(path);
+                Path directory = path.getParent();
+                if (!directories.containsValue(directory))
+                    directories.put(directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                            StandardWatchEventKinds.ENTRY_MODIFY), directory);
+            }
+
+            // Render everything once so the generator is warm.
+            for (Path spec : watched)
+                regenerate(spec);
+            report.printf("Watching %d specs for changes%n", watched.size());
+
+            while (true) {
+                Set<Path> changed = new LinkedHashSet<Path>();
+
+                // Wait for a change, then keep collecting until quiet.
+                WatchKey key = watcher.take();
+                while (key != null) {
+                    Path directory = directories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null)
+                            continue;
+                        Path path = directory.resolve((Path) event.context());
+                        if (watched.contains(path))
+                            changed.add(path);
+                    }
+                    key.reset();
+                    key = watcher.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+
+                for (Path spec : changed)
+                    regenerate(spec);
+            }
+        } finally {
+            watcher.close();
+        }
+    }
+
+
+    /**
+     * Regenerate a single spec, reporting the outcome.
+     */
+    private void regenerate(Path path) {
+        long start = System.nanoTime();
+        File spec = path.toFile();
+        try {
+            GridSpecFile grid = GridSpecFile.read(spec);
+            File output = grid.getOutputFile(outputDirectory);
+
+            int rendered = generator.generate(grid.getSpec(), output.getPath());
+
+            report.printf("OK    %s -> %s (%.2f ms, %d fragments rendered)%n", spec, output,
+                    (System.nanoTime() - start) / NANOS_PER_MILLI, rendered);
+        } catch (Exception e) {
+            String message = e.getMessage() == null ? e.toString() : e.getMessage();
+            report.printf("FAIL  %s: %s (%.2f ms)%n", spec, message, (System.nanoTime() - start) / NANOS_PER_MILLI);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * GridStylesheetOptimizer
+ * Prints a smaller stylesheet that has the same effect as the one printed by
+ * the generator.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The stylesheet is built as a list of blocks of rules and then reduced by the
+ * following passes:
+ * <ul>
+ * <li>Consecutive column types with the same minimum width share one block,
+ * and so one @media query.</li>
+ * <li>Zero pull, push and offset rules are dropped from the first block when
+ * it is not within a media query, as they only restate the initial value.
+ * This is not done if the column properties set the same property or position
+ * the columns absolutely.</li>
+ * </ul>
+ * The generator also prints the selectors of the initial properties one line
+ * per column number rather than one per line. Every other rule sets a
+ * different property or percentage, so there are no rules with identical
+ * declarations left to group.
+ */
+final class GridStylesheetOptimizer {
+
+    // Column sub-types, the property they set and the first class number.
+    private static final String[] SUB_TYPES = { "", "pull-", "push-", "offset-" };
+    private static final String[] PROPERTIES = { "width", "right", "left", "margin-left" };
+    private static final int[] STARTS = { 1, 0, 0, 0 };
+
+
+    /**
+     * A rule setting a single property.
+     */
+    private static final class Rule {
+
+        final String selector;
+        final String property;
+        final String value;
+
+        Rule(String selector, String property, String value) {
+            this.selector = selector;
+            this.property = property;
+            this.value = value;
+        }
+    }
+
+
+    /**
+     * Rules of one or more column types that share a minimum width.
+     */
+    private static final class Block {
+
+        // Minimum width, or null if not within a media query.
+        final String minWidth;
+        final List<Rule> rules = new ArrayList<Rule>();
+
+        Block(String minWidth) {
+            this.minWidth = minWidth;
+        }
+    }
+
+
+    /**
+     * Not instantiable.
+     */
+    private GridStylesheetOptimizer() {
+    }
+
+
+    /**
+     * Print the optimized rules for all column types. The bootstrap import and
+     * initial properties are printed by the generator.
+     *
+     * @param out
+     *            - Output buffer.
+     * @param f
+     *            - Formatting strings.
+     * @param spec
+     *            - Grid spec holding the column types and properties.
+     * @param percentages
+     *            - Rendered percentage of each number of columns, including
+     *            the % sign.
+     * @return The number of rules printed.
+     * @throws IOException
+     */
+    static int printColumnTypes(CssBuffer out, CssFormat f, GridSpec spec, String[] percentages)
+            throws IOException {
+
+        List<Block> blocks = buildBlocks(spec.getBreakpoints(), percentages);
+
+        if (!blocks.isEmpty() && blocks.get(0).minWidth == null)
+            dropZeroRules(blocks.get(0), spec.getProperties());
+
+        int rules = 0;
+        for (Block block : blocks) {
+            printBlock(out, f, block);
+            rules += block.rules.size();
+        }
+        return rules;
+    }
+
+
+    /**
+     * Build a block for each run of column types with the same minimum width.
+     */
+    private static List<Block> buildBlocks(List<Breakpoint> breakpoints, String[] percentages) {
+
+        List<Block> blocks = new ArrayList<Block>();
+        Block block = null;
+
+        for (Breakpoint breakpoint : breakpoints) {
+            String minWidth = breakpoint.isZeroWidth() ? null : breakpoint.getMinWidth().trim();
+
+            // Start a new block if the width changes.
+            if (block == null || (minWidth == null ? block.minWidth != null : !minWidth.equals(block.minWidth))) {
+                block = new Block(minWidth);
+                blocks.add(block);
+            }
+
+            String name = "." + breakpoint.getName() + "-";
+            for (int t = 0; t < SUB_TYPES.length; t++) {
+                for (int i = STARTS[t]; i < percentages.length; i++)
+                    block.rules.add(new Rule(name + SUB_TYPES[t] + i, PROPERTIES[t], percentages[i]));
+            }
+        }
+
+        return blocks;
+    }
+
+
+    /**
+     * Remove the zero pull, push and offset rules, if they are known to only
+     * restate the initial values of their properties.
+     */
+    private static void dropZeroRules(Block block, List<Property> properties) {
+
+        // Find which properties the column properties table sets.
+        Map<String, String> initial = new LinkedHashMap<String, String>();
+        for (Property property : properties)
+            initial.put(property.getName().trim(), property.getValue().trim());
+
+        // Right and left only have an effect when columns are positioned.
+        String position = initial.get("position");
+        boolean offsetsSafe = position == null || position.equals("relative") || position.equals("static");
+
+        for (int t = 1; t < SUB_TYPES.length; t++) {
+            boolean safe = !initial.containsKey(PROPERTIES[t])
+                    && (PROPERTIES[t].equals("margin-left") || offsetsSafe);
+            if (!safe)
+                continue;
+
+            for (int r = block.rules.size() - 1; r >= 0; r--) {
+                Rule rule = block.rules.get(r);
+                if (rule.property.equals(PROPERTIES[t]) && isZero(rule.value))
+                    block.rules.remove(r);
+            }
+        }
+    }
+
+
+    /**
+     * @return True if a css value is a zero length or percentage.
+     */
+    private static boolean isZero(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isDigit(c) && c != '0')
+                return false;
+            if (Character.isLetter(c) || c == '%')
+                return true;
+        }
+        return true;
+    }
+
+
+    /**
+     * Print a block, within a media query if it has a minimum width.
+     */
+    private static void printBlock(CssBuffer out, CssFormat f, Block block) throws IOException {
+
+        boolean indented = block.minWidth != null;
+        String indent = indented ? f.tab : "";
+
+        // Print media query.
+        if (indented)
+            out.append(f.newLine).append("@media").append(f.space).append("(min-width:").append(f.space)
+                    .append(f.value(block.minWidth)).append(')').append(f.space).append('{').append(f.newLine);
+
+        for (Rule rule : block.rules) {
+            out.append(f.newLine);
+            out.append(indent).append(rule.selector).append(f.space).append('{').append(f.newLine);
+            out.append(indent).append(f.tab).append(rule.property).append(':').append(f.space).append(rule.value)
+                    .append(f.semiColon).append(f.newLine);
+            out.append(indent).append('}').append(f.newLine);
+        }
+
+        // Closing bracket of media query.
+        if (indented)
+            out.append('}').append(f.newLine);
+    }
+}
@@ -0,0 +1,340 @@
+/**
+ * IncrementalGenerator
+ * Regenerates css files by re-rendering only the parts of the grid that
+ * changed since the file was last generated.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A generated file is split into fragments: the header, holding the bootstrap
+ * import and the initial properties, and one fragment for each column type.
+ * The fragments of each file are kept along with a key describing the input
+ * they were rendered from. When a file is generated again, fragments whose key
+ * is unchanged are reused and only the rest are rendered.
+ *
+ * Files are always replaced atomically, see {@link AtomicFile}, so readers
+ * such as a browser reloading the file never see it half written. If the
+ * start of the file still holds the fragments last written to it, everything
+ * before the first changed fragment is copied from the file rather than
+ * written again. The start of the file is checked by comparing its content
+ * with those fragments, so edits that keep the length and modification time
+ * of the file are noticed.
+ *
+ * Optimized generators share media queries between column types, so their
+ * output is rendered as a single fragment.
+ */
+public class IncrementalGenerator {
+
+    // Generator that fragments are rendered with.
+    private final BootstrapGridExtensionFileGenerator generator;
+
+    // Fragments of each generated file, by absolute path.
+    private final Map<String, Fragments> files = new HashMap<String, Fragments>();
+
+    // Fragments of each stylesheet rendered in memory, by name.
+    private final Map<String, Fragments> rendered = new HashMap<String, Fragments>();
+
+
+    /**
+     * Fragments of a generated file.
+     */
+    static final class Fragments {
+
+        // Input each fragment was rendered from, and the rendered bytes.
+        final List<Object> keys = new ArrayList<Object>();
+        final List<byte[]> bytes = new ArrayList<byte[]>();
+
+        /**
+         * @return Total length of all fragments.
+         */
+        long totalLength() {
+            long total = 0;
+            for (byte[] fragment : bytes)
+                total += fragment.length;
+            return total;
+        }
+
+        /**
+         * Find a fragment rendered from the given input.
+         *
+         * @return The fragment, or null if there is none.
+         */
+        byte[] find(Object key) {
+            int i = keys.indexOf(key);
+            return i == -1 ? null : bytes.get(i);
+        }
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param generator
+     *            - Generator that fragments are rendered with.
+     */
+    public IncrementalGenerator(BootstrapGridExtensionFileGenerator generator) {
+        this.generator = generator;
+    }
+
+
+    /**
+     * Generate a css file, rendering only the fragments that changed since
+     * this file was last generated.
+     *
+     * @return The number of fragments that were rendered.
+     */
+    public int generate(GridSpec spec, String fileName) throws IOException {
+        return generate(spec, fileName, null);
+    }
+
+
+    /**
+     * Generate a css file, rendering only the fragments that changed since
+     * this file was last generated. Generation stops without changing the file
+     * if the thread is interrupted before the file is replaced.
+     *
+     * @param progress
+     *            - Listener for progress updates, or null.
+     * @return The number of fragments that were rendered.
+     * @throws java.io.InterruptedIOException
+     *             If the thread is interrupted while rendering or writing.
+     */
+    public synchronized int generate(GridSpec spec, String fileName, GenerationProgress progress)
+            throws IOException {
+
+        File file = new File(BootstrapGridExtensionFileGenerator.formatFileName(fileName)).getAbsoluteFile();
+        Fragments old = files.get(file.getPath());
+        Fragments current = new Fragments();
+
+        int rendered = update(old, current, spec, progress);
+
+        // Find the first fragment that is not already in the file.
+        int first = 0;
+        long offset = 0;
+        if (old != null && file.isFile() && file.length() == old.totalLength()) {
+            while (first < current.bytes.size() && first < old.bytes.size()
+                    && current.bytes.get(first) == old.bytes.get(first)) {
+                offset += current.bytes.get(first).length;
+                first++;
+            }
+            if (first > 0 && !startsWith(file, old.bytes, first)) {
+                first = 0;
+                offset = 0;
+            }
+        }
+
+        // Nothing to do if the file already holds every fragment.
+        long length = current.totalLength();
+        long start = System.nanoTime();
+        if (first < current.bytes.size() || file.length() != length) {
+            ByteBuffer[] blocks = new ByteBuffer[current.bytes.size() - first];
+            for (int i = 0; i < blocks.length; i++)
+                blocks[i] = ByteBuffer.wrap(current.bytes.get(first + i));
+            AtomicFile.write(file, offset, blocks);
+        }
+        generator.getMetrics().recordWrite(length - offset, System.nanoTime() - start);
+
+        files.put(file.getPath(), current);
+
+        return rendered;
+    }
+
+
+    /**
+     * Check that a file starts with the given fragments.
+     *
+     * @param count
+     *            - Number of fragments to check.
+     */
+    private static boolean startsWith(File file, List<byte[]> fragments, int count) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            for (int i = 0; i < count; i++) {
+                byte[] fragment = fragments.get(i);
+                int pos = 0;
+                while (pos < fragment.length) {
+                    int n = in.read(buffer, 0, Math.min(buffer.length, fragment.length - pos));
+                    if (n == -1)
+                        return false;
+                    for (int j = 0; j < n; j++) {
+                        if (buffer[j] != fragment[pos + j])
+                            return false;
+                    }
+                    pos += n;
+                }
+            }
+            return true;
+        } finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * Render a stylesheet in memory, rendering only the fragments that changed
+     * since the stylesheet of the same name was last rendered. Rendering stops
+     * if the thread is interrupted.
+     *
+     * @param name
+     *            - Name to keep the fragments of this stylesheet under.
+     * @param progress
+     *            - Listener for progress updates, or null.
+     * @return The stylesheet, encoded with the generator's default charset.
+     * @throws java.io.InterruptedIOException
+     *             If the thread is interrupted while rendering.
+     */
+    public synchronized byte[] render(String name, GridSpec spec, GenerationProgress progress)
+            throws IOException {
+
+        Fragments current = new Fragments();
+        update(rendered.get(name), current, spec, progress);
+        rendered.put(name, current);
+
+        // Join the fragments.
+        byte[] css = new byte[(int) current.totalLength()];
+        int offset = 0;
+        for (byte[] fragment : current.bytes) {
+            System.arraycopy(fragment, 0, css, offset, fragment.length);
+            offset += fragment.length;
+        }
+        return css;
+    }
+
+
+    /**
+     * Fill in the fragments of a grid, reusing fragments from a previous
+     * version where the input is unchanged.
+     *
+     * @param old
+     *            - Fragments of the previous version, or null if there is none.
+     * @param current
+     *            - Empty fragments to fill in.
+     * @param spec
+     *            - Grid spec to render.
+     * @param progress
+     *            - Listener for progress updates, or null.
+     * @return The number of fragments that were rendered.
+     */
+    int update(Fragments old, Fragments current, GridSpec spec, GenerationProgress progress) throws IOException {
+
+        long start = System.nanoTime();
+        int numColumns = spec.getNumColumns();
+        CssFormat f = CssFormat.of(spec.isMinify());
+        String[] percentages = PercentageTable.get(numColumns, generator.getPrecision(), f);
+        List<Breakpoint> breakpoints = spec.getBreakpoints();
+
+        // Optimized output cannot be split into independent fragments.
+        if (generator.isOptimized()) {
+            byte[] fragment = old == null ? null : old.find(spec);
+            int rendered = 0;
+            if (fragment == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                generator.generate(spec, out, BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET);
+                fragment = out.toByteArray();
+                rendered++;
+            }
+            current.keys.add(spec);
+            current.bytes.add(fragment);
+            if (progress != null)
+                progress.rulesEmitted(1, 1);
+            return rendered;
+        }
+
+        // Find the input of each fragment. The header lists every column type
+        // name, while each column type depends only on its own breakpoint.
+        // Keys are lists, which compare by their elements.
+        List<String> names = new ArrayList<String>(breakpoints.size());
+        for (Breakpoint breakpoint : breakpoints)
+            names.add(breakpoint.getName());
+        current.keys.add(Arrays.asList("header", numColumns, spec.isMinify(), spec.getProperties(), names));
+        for (Breakpoint breakpoint : breakpoints)
+            current.keys.add(Arrays.asList("type", numColumns, spec.isMinify(), breakpoint));
+
+        // Reuse what fragments we can, sharing fragments between repeated
+        // column types.
+        int total = 0;
+        for (int i = 0; i < current.keys.size(); i++) {
+            Object key = current.keys.get(i);
+            byte[] fragment = old == null ? null : old.find(key);
+            if (fragment == null && current.keys.indexOf(key) < i)
+                fragment = current.bytes.get(current.keys.indexOf(key));
+            if (fragment == null)
+                total += i == 0 ? 1 : BootstrapGridExtensionFileGenerator.countColumnTypeRules(numColumns);
+            current.bytes.add(fragment);
+        }
+
+        // Render the rest.
+        int rendered = 0;
+        int emitted = 0;
+        for (int i = 0; i < current.keys.size(); i++) {
+            if (current.bytes.get(i) != null)
+                continue;
+
+            // Size the fragment exactly so that it is never copied to grow.
+            StylesheetSize size = i == 0 ? StylesheetSize.header(f, spec) : StylesheetSize.columnType(f,
+                    breakpoints.get(i - 1), percentages);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) size.bytes);
+            CssBuffer out = newBuffer(bytes);
+            if (progress != null)
+                out.setProgress(progress, emitted, total);
+
+            if (i == 0) {
+                out.append(f.importRule);
+                generator.printInitProperties(out, f, spec);
+            } else {
+                generator.printColumnType(out, f, breakpoints.get(i - 1), percentages);
+            }
+            out.flush();
+
+            // Later repeats of this column type share the fragment.
+            byte[] fragment = bytes.toByteArray();
+            for (int j = i; j < current.keys.size(); j++) {
+                if (current.bytes.get(j) == null && current.keys.get(j).equals(current.keys.get(i)))
+                    current.bytes.set(j, fragment);
+            }
+
+            emitted = out.getRules();
+            rendered++;
+        }
+
+        generator.getMetrics().recordGeneration(System.nanoTime() - start);
+        return rendered;
+    }
+
+
+    /**
+     * Create a buffer that prints to a byte stream in the generator's default
+     * charset.
+     */
+    private static CssBuffer newBuffer(OutputStream bytes) {
+        return new CssBuffer(new OutputStreamWriter(bytes, BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET));
+    }
+
+
+    /**
+     * Forget the fragments of a file, so that it is rendered in full next
+     * time.
+     *
+     * @param fileName
+     *            - Name of the file.
+     */
+    public synchronized void forget(String fileName) {
+        files.remove(new File(BootstrapGridExtensionFileGenerator.formatFileName(fileName)).getAbsolutePath());
+    }
+}
@@ -8,17 +8,49 @@
 
 package com.adamheins.bootstrap_grid_extension_generator;
 
+import javax.swing.UIManager;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.DocumentFilter;
 
+/**
+ * Non-digits are dropped from inserted and pasted text by scanning it, so
+ * text that is already all digits is passed on as is without allocating. An
+ * optional maximum rejects edits that would make the number larger, so that
+ * huge values never reach the generator. Numbers with fewer digits than the
+ * maximum are allowed without reading the document, so only edits that reach
+ * its number of digits build the new text to compare. There is no minimum, as
+ * numbers are typed one digit at a time and pass through smaller values on the
+ * way.
+ */
 public class NumberDocumentFilter extends DocumentFilter {
 
+    // Largest allowed value, or Long.MAX_VALUE for no limit, and its digits.
+    private final long max;
+    private final String maxDigits;
+
+
     /**
      * Constructor.
      */
     public NumberDocumentFilter() {
+        this(Long.MAX_VALUE);
+    }
+
+
+    /**
+     * Constructor.
+     *
+     * @param max
+     *            - Largest allowed value, or Long.MAX_VALUE for no limit.
+     */
+    public NumberDocumentFilter(long max) {
         super();
+        if (max < 0)
+            throw new IllegalArgumentException("Maximum must not be negative: " + max);
+        this.max = max;
+        this.maxDigits = Long.toString(max);
     }
 
     @Override
@@ -26,13 +58,112 @@ public class NumberDocumentFilter extends DocumentFilter {
             throws BadLocationException {
 
         // Remove non-digits in inserted text.
-        fb.insertString(off, str.replaceAll("\\D++", ""), attr);
+        String digits = digits(str);
+        if (isAllowed(fb.getDocument(), off, 0, digits))
+            fb.insertString(off, digits, attr);
     }
 
     @Override
     public void replace(FilterBypass fb, int off, int len, String str, AttributeSet attr) throws BadLocationException {
 
         // Remove non-digits in replaced text.
-        fb.replace(off, len, str.replaceAll("\\D++", ""), attr);
+        String digits = digits(str);
+        if (isAllowed(fb.getDocument(), off, len, digits))
+            fb.replace(off, len, digits, attr);
+    }
+
+
+    /**
+     * Remove every character that is not a digit from a string.
+     *
+     * @param str
+     *            - The string, or null.
+     * @return The digits of the string, which is the string itself if it
+     *         holds nothing else.
+     */
+    static String digits(String str) {
+        if (str == null)
+            return null;
+
+        // Find the first non-digit. Clean text ends here.
+        int len = str.length();
+        int i = 0;
+        while (i < len && isDigit(str.charAt(i)))
+            i++;
+        if (i == len)
+            return str;
+
+        // Copy the digits.
+        char[] digits = new char[len - 1];
+        str.getChars(0, i, digits, 0);
+        int count = i;
+        for (i++; i < len; i++) {
+            char c = str.charAt(i);
+            if (isDigit(c))
+                digits[count++] = c;
+        }
+        return new String(digits, 0, count);
+    }
+
+
+    /**
+     * @return True if the character is an ASCII digit.
+     */
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+
+    /**
+     * Check that replacing part of the document with digits leaves a number
+     * no larger than the maximum. Gives error feedback if not.
+     */
+    private boolean isAllowed(Document doc, int off, int len, String digits) throws BadLocationException {
+        if (max == Long.MAX_VALUE || digits == null || digits.isEmpty())
+            return true;
+
+        // Shorter numbers are smaller, whatever their digits.
+        int length = doc.getLength() - len + digits.length();
+        if (length < maxDigits.length())
+            return true;
+
+        String text = doc.getText(0, off) + digits + doc.getText(off + len, doc.getLength() - off - len);
+        if (compare(text, maxDigits) <= 0)
+            return true;
+
+        UIManager.getLookAndFeel().provideErrorFeedback(null);
+        return false;
+    }
+
+
+    /**
+     * Compare a string of digits with a number, without parsing the digits,
+     * which may not fit in a long.
+     *
+     * @param digits
+     *            - The digits, which may have leading zeros.
+     * @param number
+     *            - Digits of the number, without leading zeros.
+     * @return A negative number, zero or a positive number as the digits are
+     *         less than, equal to or greater than the number.
+     */
+    static int compare(String digits, String number) {
+
+        // Skip leading zeros.
+        int start = 0;
+        while (start < digits.length() - 1 && digits.charAt(start) == '0')
+            start++;
+
+        // Longer numbers are larger. Numbers of the same length compare as
+        // strings.
+        int lengths = (digits.length() - start) - number.length();
+        if (lengths != 0)
+            return lengths;
+        for (int i = 0; i < number.length(); i++) {
+            int diff = digits.charAt(start + i) - number.charAt(i);
+            if (diff != 0)
+                return diff;
+        }
+        return 0;
     }
 }
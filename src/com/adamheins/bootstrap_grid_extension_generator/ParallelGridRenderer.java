@@ -0,0 +1,228 @@
+/**
+ * ParallelGridRenderer
+ * Renders the parts of a large grid, or several variants of a grid, on
+ * several threads at once.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Without the optimizer, the header and each column type are independent of
+ * each other, so they are rendered as separate blocks on a fork-join pool and
+ * then written out in order. Each block is rendered into its own buffer, so
+ * this trades memory for time and only pays off for large grids; the generator
+ * decides when to use it. Variants of a grid are generated to their files in
+ * the same way, one task per file.
+ */
+final class ParallelGridRenderer {
+
+    // Pool shared by all generators, created when first needed.
+    private static final class PoolHolder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+
+    /**
+     * Renders a single block: the header if there is no breakpoint, otherwise
+     * the classes of one column type.
+     */
+    private static final class BlockTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -3047585113209519420L;
+
+        private final BootstrapGridExtensionFileGenerator generator;
+        private final GridSpec spec;
+        private final CssFormat f;
+        private final String[] percentages;
+        private final Breakpoint breakpoint;
+        private final Charset charset;
+
+        // Rendered characters, and their encoding if a charset was given.
+        CssBuffer chars;
+        ByteBuffer bytes;
+
+        BlockTask(BootstrapGridExtensionFileGenerator generator, GridSpec spec, CssFormat f, String[] percentages,
+                Breakpoint breakpoint, Charset charset) {
+            this.generator = generator;
+            this.spec = spec;
+            this.f = f;
+            this.percentages = percentages;
+            this.breakpoint = breakpoint;
+            this.charset = charset;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                // Blocks are sized exactly, so their buffers never grow.
+                StylesheetSize size;
+                if (breakpoint == null) {
+                    size = StylesheetSize.header(f, spec);
+                    chars = new CssBuffer(null, size.charsAsInt());
+                    chars.append(f.importRule);
+                    generator.printInitProperties(chars, f, spec);
+                } else {
+                    size = StylesheetSize.columnType(f, breakpoint, percentages);
+                    chars = new CssBuffer(null, size.charsAsInt());
+                    generator.printColumnType(chars, f, breakpoint, percentages);
+                }
+
+                // Encode here too, so that encoding is also done in parallel.
+                if (charset != null)
+                    bytes = BootstrapGridExtensionFileGenerator.encodeDirect(chars.chars(), charset, charset
+                            .equals(BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET) ? size.bytes : -1);
+            } catch (IOException e) {
+                completeExceptionally(e);
+            }
+        }
+    }
+
+
+    /**
+     * Generates a single variant of a grid to its file.
+     */
+    private static final class VariantTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 8157104338617652934L;
+
+        private final BootstrapGridExtensionFileGenerator generator;
+        private final GridSpec spec;
+        private final File file;
+
+        VariantTask(BootstrapGridExtensionFileGenerator generator, GridSpec spec, File file) {
+            this.generator = generator;
+            this.spec = spec;
+            this.file = file;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                generator.generate(spec, file.getPath());
+            } catch (IOException e) {
+                completeExceptionally(e);
+            }
+        }
+    }
+
+
+    /**
+     * Not instantiable.
+     */
+    private ParallelGridRenderer() {
+    }
+
+
+    /**
+     * Render a grid as blocks of characters.
+     * 
+     * @return The header followed by each column type, in order.
+     * @throws InterruptedIOException
+     *             If the thread is interrupted while waiting for the blocks.
+     */
+    static CssBuffer[] render(BootstrapGridExtensionFileGenerator generator, GridSpec spec, CssFormat f,
+            String[] percentages) throws IOException {
+        BlockTask[] tasks = run(generator, spec, f, percentages, null);
+        CssBuffer[] blocks = new CssBuffer[tasks.length];
+        for (int i = 0; i < tasks.length; i++)
+            blocks[i] = tasks[i].chars;
+        return blocks;
+    }
+
+
+    /**
+     * Render a grid as blocks of encoded bytes, ready for a gathering write.
+     * 
+     * @param charset
+     *            - Character set to encode the blocks with.
+     * @return The header followed by each column type, in order.
+     * @throws java.nio.charset.CharacterCodingException
+     *             If the grid cannot be encoded with the charset.
+     * @throws InterruptedIOException
+     *             If the thread is interrupted while waiting for the blocks.
+     */
+    static ByteBuffer[] render(BootstrapGridExtensionFileGenerator generator, GridSpec spec, CssFormat f,
+            String[] percentages, Charset charset) throws IOException {
+        BlockTask[] tasks = run(generator, spec, f, percentages, charset);
+        ByteBuffer[] blocks = new ByteBuffer[tasks.length];
+        for (int i = 0; i < tasks.length; i++)
+            blocks[i] = tasks[i].bytes;
+        return blocks;
+    }
+
+
+    /**
+     * Generate variants of a grid to their files, all at once.
+     * 
+     * @param variants
+     *            - Variants of the grid.
+     * @param files
+     *            - File to generate each variant to.
+     * @throws InterruptedIOException
+     *             If the thread is interrupted while waiting for the files.
+     */
+    static void generate(BootstrapGridExtensionFileGenerator generator, List<GridSpec> variants, List<File> files)
+            throws IOException {
+        VariantTask[] tasks = new VariantTask[variants.size()];
+        for (int i = 0; i < tasks.length; i++)
+            tasks[i] = new VariantTask(generator, variants.get(i), files.get(i));
+        run(tasks);
+    }
+
+
+    /**
+     * Render every block on the pool and wait for all of them.
+     */
+    private static BlockTask[] run(BootstrapGridExtensionFileGenerator generator, GridSpec spec, CssFormat f,
+            String[] percentages, Charset charset) throws IOException {
+
+        List<Breakpoint> breakpoints = spec.getBreakpoints();
+        BlockTask[] tasks = new BlockTask[breakpoints.size() + 1];
+        tasks[0] = new BlockTask(generator, spec, f, percentages, null, charset);
+        for (int i = 0; i < breakpoints.size(); i++)
+            tasks[i + 1] = new BlockTask(generator, spec, f, percentages, breakpoints.get(i), charset);
+        return run(tasks);
+    }
+
+
+    /**
+     * Run tasks on the pool and wait for all of them. If one fails, its
+     * exception is thrown once the tasks before it are done.
+     */
+    private static <T extends ForkJoinTask<?>> T[] run(T[] tasks) throws IOException {
+
+        for (T task : tasks)
+            PoolHolder.POOL.execute(task);
+
+        try {
+            for (T task : tasks)
+                task.get();
+        } catch (InterruptedException e) {
+            for (ForkJoinTask<?> task : tasks)
+                task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Generation cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * PercentageTable
+ * Rendered percentage widths of every number of columns in a grid.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Percentages are computed exactly and rounded to a fixed number of decimal
+ * places, with trailing zeros dropped, so 1 of 3 columns is 33.33333333 rather
+ * than 33.333333333333336. Tables are cached by column count and precision
+ * and shared by every column type, sub-type and call. Only the most recently
+ * used tables are kept, so a long running server that sees many grids does not
+ * hold on to tables it no longer uses.
+ */
+final class PercentageTable {
+
+    // Largest number of tables kept. The least recently used is evicted.
+    private static final int MAX_CACHED_TABLES = 64;
+
+    // Tables by column count, precision and format, in access order. Guarded
+    // by itself.
+    private static final Map<Long, String[]> TABLES = new LinkedHashMap<Long, String[]>(16, 0.75f, true) {
+        private static final long serialVersionUID = 4529182736410958321L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String[]> eldest) {
+            return size() > MAX_CACHED_TABLES;
+        }
+    };
+
+    // One hundred percent.
+    private static final BigDecimal HUNDRED = BigDecimal.valueOf(100);
+
+
+    /**
+     * Not instantiable.
+     */
+    private PercentageTable() {
+    }
+
+
+    /**
+     * Get the percentage width of every number of columns from zero up to the
+     * total number of columns.
+     * 
+     * @param num
+     *            - Number of columns.
+     * @param precision
+     *            - Number of decimal places to round to.
+     * @param f
+     *            - Format to render percentages in.
+     * @return Array of rendered percentages, including the % sign, indexed by
+     *         number of columns. The array is shared and must not be modified.
+     */
+    static String[] get(int num, int precision, CssFormat f) {
+        Long key = ((long) num << 32) | (precision << 1) | (f.minify ? 1 : 0);
+
+        String[] table;
+        synchronized (TABLES) {
+            table = TABLES.get(key);
+        }
+        if (table == null) {
+            // Computed outside the lock, so a table may rarely be computed
+            // twice.
+            table = compute(num, precision, f);
+            synchronized (TABLES) {
+                TABLES.put(key, table);
+            }
+        }
+        return table;
+    }
+
+
+    /**
+     * Compute a table of percentages.
+     */
+    private static String[] compute(int num, int precision, CssFormat f) {
+        BigDecimal total = BigDecimal.valueOf(num);
+
+        String[] table = new String[num + 1];
+        for (int i = 0; i <= num; i++) {
+            BigDecimal percentage = HUNDRED.multiply(BigDecimal.valueOf(i)).divide(total, precision,
+                    RoundingMode.HALF_UP);
+
+            // Zero is special cased as stripTrailingZeros does not strip it
+            // before Java 8.
+            table[i] = f.percentage(percentage.signum() == 0 ? "0" : percentage.stripTrailingZeros().toPlainString());
+        }
+        return table;
+    }
+}
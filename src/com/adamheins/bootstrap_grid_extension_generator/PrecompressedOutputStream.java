@@ -0,0 +1,268 @@
+/**
+ * PrecompressedOutputStream
+ * Writes a file and a gzip compressed copy of it in a single pass.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Every byte written goes to both the file and the compressed copy, so servers
+ * that serve precompressed assets do not need a separate step that reads the
+ * file back. The compressed copy is named after the file with a .gz extension
+ * and uses the best compression level, as it is compressed once and served
+ * many times.
+ *
+ * Both files are written to temporary files and moved into place when the
+ * stream is closed, so readers never see part of either. If a write fails,
+ * closing the stream discards the temporary files and leaves both files as
+ * they were.
+ *
+ * Brotli and zstd are not available in the Java platform, so only gzip is
+ * produced.
+ */
+public class PrecompressedOutputStream extends OutputStream {
+
+    // Extension of the compressed copy.
+    public static final String GZIP_EXTENSION = ".gz";
+
+    // Size of the buffers in front of each file.
+    private static final int BUFFER_SIZE = 8192;
+
+    // Target files and the temporary files written in their place.
+    private final File file, gzipFile;
+    private final File plainTemp, gzipTemp;
+
+    // Streams to the temporary files, so they can be forced to disk.
+    private final FileOutputStream plainOut, gzipOut;
+
+    // Counted streams to the file and the compressed copy.
+    private final CountingOutputStream plain;
+    private final CountingOutputStream compressed;
+
+    // Compressor in front of the compressed copy.
+    private final GZIPOutputStream gzip;
+
+    // True once a write has failed, so the files must not be replaced.
+    private boolean failed;
+
+    // True once closed.
+    private boolean closed;
+
+
+    /**
+     * Constructor.
+     *
+     * @param file
+     *            - File to write. The compressed copy is written next to it.
+     * @throws IOException
+     *             If either file cannot be opened.
+     */
+    public PrecompressedOutputStream(File file) throws IOException {
+        this.file = file;
+        this.gzipFile = getGzipFile(file);
+
+        plainTemp = AtomicFile.createTemp(file);
+        plainOut = new FileOutputStream(plainTemp);
+        plain = new CountingOutputStream(new BufferedOutputStream(plainOut, BUFFER_SIZE));
+
+        try {
+            gzipTemp = AtomicFile.createTemp(gzipFile);
+            gzipOut = new FileOutputStream(gzipTemp);
+            compressed = new CountingOutputStream(gzipOut);
+            gzip = new GZIPOutputStream(compressed, BUFFER_SIZE) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            };
+        } catch (IOException e) {
+            plain.close();
+            plainTemp.delete();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Get the compressed copy of a file.
+     *
+     * @param file
+     *            - The uncompressed file.
+     * @return The file's gzip compressed copy.
+     */
+    public static File getGzipFile(File file) {
+        return new File(file.getPath() + GZIP_EXTENSION);
+    }
+
+
+    /**
+     * Check that a compressed copy decompresses to the given content.
+     *
+     * @param gzipFile
+     *            - The compressed copy.
+     * @param content
+     *            - Content the copy should hold.
+     * @return True if the copy exists and holds exactly the content. False if
+     *         it is missing, differs or is not valid gzip.
+     */
+    public static boolean hasContent(File gzipFile, byte[] content) throws IOException {
+        if (!gzipFile.isFile())
+            return false;
+
+        InputStream in;
+        try {
+            in = new GZIPInputStream(new FileInputStream(gzipFile), BUFFER_SIZE);
+        } catch (ZipException e) {
+            return false;
+        }
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int pos = 0;
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (pos + n > content.length)
+                    return false;
+                for (int i = 0; i < n; i++) {
+                    if (buffer[i] != content[pos + i])
+                        return false;
+                }
+                pos += n;
+            }
+            return pos == content.length;
+        } catch (ZipException e) {
+            return false;
+        } catch (EOFException e) {
+            // Truncated copy.
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        boolean ok = false;
+        try {
+            plain.write(b);
+            gzip.write(b);
+            ok = true;
+        } finally {
+            failed |= !ok;
+        }
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        boolean ok = false;
+        try {
+            plain.write(b, off, len);
+            gzip.write(b, off, len);
+            ok = true;
+        } finally {
+            failed |= !ok;
+        }
+    }
+
+
+    @Override
+    public void flush() throws IOException {
+        plain.flush();
+        gzip.flush();
+    }
+
+
+    /**
+     * Finish both files and move them into place, unless a write failed. If
+     * a write failed, both temporary files are discarded without reporting
+     * further errors, so that the error of the write is the one seen.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+
+        if (failed) {
+            discard();
+            return;
+        }
+
+        try {
+            try {
+                plain.flush();
+                gzip.finish();
+                if (!failed) {
+                    plainOut.getFD().sync();
+                    gzipOut.getFD().sync();
+                }
+            } finally {
+                try {
+                    plain.close();
+                } finally {
+                    gzip.close();
+                }
+            }
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        } finally {
+            if (failed) {
+                plainTemp.delete();
+                gzipTemp.delete();
+            }
+        }
+
+        AtomicFile.commit(plainTemp, file);
+        AtomicFile.commit(gzipTemp, gzipFile);
+    }
+
+
+    /**
+     * Close both temporary files after a failed write and delete them.
+     */
+    private void discard() {
+        try {
+            plain.close();
+        } catch (IOException e) {
+            // The files are deleted anyway.
+        }
+        try {
+            gzip.close();
+        } catch (IOException e) {
+            // The files are deleted anyway.
+        }
+        plainTemp.delete();
+        gzipTemp.delete();
+    }
+
+
+    /**
+     * @return Number of bytes written to the file.
+     */
+    public long getSize() {
+        return plain.getCount();
+    }
+
+
+    /**
+     * @return Number of bytes written to the compressed copy. Only complete
+     *         once the stream is closed.
+     */
+    public long getGzipSize() {
+        return compressed.getCount();
+    }
+}
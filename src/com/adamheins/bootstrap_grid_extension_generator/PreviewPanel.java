@@ -0,0 +1,151 @@
+/**
+ * PreviewPanel
+ * Panel showing a preview of the generated css and its size.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingWorker;
+
+public class PreviewPanel extends JPanel {
+
+    // Serial Version UID.
+    private static final long serialVersionUID = -3170544915233618475L;
+
+    // Largest number of characters shown. Larger previews are cut off.
+    private static final int MAX_PREVIEW_CHARS = 200000;
+
+    // Names that rendered stylesheets are kept under by the generator.
+    private static final String PREVIEW = "preview";
+    private static final String MINIFIED = "minified";
+
+    // Generator that keeps the previous previews, so only changes are
+    // rendered.
+    private final IncrementalGenerator generator;
+
+    // Preview text and size.
+    private JTextArea textArea;
+    private JLabel sizeLabel;
+
+    // Worker rendering the preview, or null if not running.
+    private SwingWorker<String[], Void> worker;
+
+
+    /**
+     * Constructor.
+     *
+     * @param generator
+     *            - Generator used to render the preview.
+     */
+    public PreviewPanel(BootstrapGridExtensionFileGenerator generator) {
+
+        this.generator = new IncrementalGenerator(generator);
+
+        // Set a border layout for this panel.
+        setLayout(new BorderLayout());
+
+        // Set up the text area.
+        textArea = new JTextArea();
+        textArea.setEditable(false);
+        textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, textArea.getFont().getSize()));
+        JScrollPane scrollPane = new JScrollPane(textArea);
+        scrollPane.setPreferredSize(new Dimension(0, 0));
+        add(scrollPane, BorderLayout.CENTER);
+
+        // Add margins.
+        add(Box.createRigidArea(new Dimension(10, 0)), BorderLayout.WEST);
+        add(Box.createRigidArea(new Dimension(10, 0)), BorderLayout.EAST);
+        add(Box.createRigidArea(new Dimension(0, 10)), BorderLayout.NORTH);
+
+        // Set up the size label on the bottom.
+        sizeLabel = new JLabel(" ");
+        sizeLabel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
+        add(sizeLabel, BorderLayout.SOUTH);
+    }
+
+
+    /**
+     * Render the preview in the background, replacing any preview still being
+     * rendered. Must be called on the EDT.
+     *
+     * @param spec
+     *            - Grid to preview.
+     */
+    public void update(final GridSpec spec) {
+
+        if (worker != null)
+            worker.cancel(true);
+
+        worker = new SwingWorker<String[], Void>() {
+
+            @Override
+            protected String[] doInBackground() throws IOException {
+                byte[] css = generator.render(PREVIEW, spec, null);
+                byte[] minified = spec.isMinify() ? css : generator.render(MINIFIED,
+                        new GridSpec(spec.getProperties(), spec.getBreakpoints(), spec.getNumColumns(), true), null);
+
+                // Measure the compressed size of the minified css.
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+                gzip.write(minified);
+                gzip.close();
+
+                // Cut off very large previews, which the text area would be
+                // slow to show.
+                String text = new String(css, BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET);
+                if (text.length() > MAX_PREVIEW_CHARS)
+                    text = text.substring(0, MAX_PREVIEW_CHARS) + "\n\n/* Preview cut off after "
+                            + MAX_PREVIEW_CHARS + " characters. */";
+
+                String size = String.format("%,d bytes, %,d minified, %,d minified and gzipped", css.length,
+                        minified.length, compressed.size());
+                return new String[] { text, size };
+            }
+
+            @Override
+            protected void done() {
+                if (worker != this)
+                    return;
+                worker = null;
+
+                try {
+                    String[] preview = get();
+                    textArea.setText(preview[0]);
+                    textArea.setCaretPosition(0);
+                    sizeLabel.setText(preview[1]);
+                } catch (CancellationException e) {
+                    // Replaced by a newer preview.
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    showError();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+
+    /**
+     * Show that the current input cannot be previewed.
+     */
+    public void showError() {
+        textArea.setText("");
+        sizeLabel.setText("Cannot preview the current input.");
+    }
+}
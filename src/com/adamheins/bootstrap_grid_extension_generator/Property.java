@@ -0,0 +1,70 @@
+/**
+ * Property
+ * A css property set on every column, such as float: left.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+public final class Property {
+
+    // Name and value of the property.
+    private final String name;
+    private final String value;
+
+
+    /**
+     * Constructor.
+     * 
+     * @param name
+     *            - Name of the property.
+     * @param value
+     *            - Value of the property.
+     * @throws IllegalArgumentException
+     *             If the name or value is missing.
+     */
+    public Property(String name, String value) {
+        if (name == null || name.trim().isEmpty())
+            throw new IllegalArgumentException("Property name is missing");
+        if (value == null || value.trim().isEmpty())
+            throw new IllegalArgumentException("Value of property " + name + " is missing");
+        this.name = name;
+        this.value = value;
+    }
+
+
+    /**
+     * @return Name of the property.
+     */
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * @return Value of the property.
+     */
+    public String getValue() {
+        return value;
+    }
+
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Property))
+            return false;
+        Property other = (Property) obj;
+        return name.equals(other.name) && value.equals(other.value);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + value.hashCode();
+    }
+
+
+    @Override
+    public String toString() {
+        return name + ": " + value;
+    }
+}
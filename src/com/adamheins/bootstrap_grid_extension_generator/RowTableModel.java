@@ -0,0 +1,208 @@
+/**
+ * RowTableModel
+ * Table model backed by an array of rows, with bulk edits.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.util.Arrays;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Rows are kept in a plain array rather than the synchronized vectors of
+ * DefaultTableModel, and edits of many rows fire a single event. Rows are
+ * never changed in place: editing a cell replaces its row. A snapshot of the
+ * data can therefore share the rows array, which is only copied when the
+ * table is next changed. Must only be used on the EDT, like any table model.
+ */
+final class RowTableModel extends AbstractTableModel {
+
+    // Serial Version UID.
+    private static final long serialVersionUID = 4630872184093306197L;
+
+    // Names of the columns.
+    private final Object[] columnNames;
+
+    // Rows, of which the first count are in the table.
+    private Object[][] rows;
+    private int count;
+
+    // True if the rows array has been handed out as a snapshot and must be
+    // copied before it is changed.
+    private boolean shared;
+
+
+    /**
+     * Constructor.
+     *
+     * @param rowData
+     *            - Initial rows of the table.
+     * @param columnNames
+     *            - Names of the columns.
+     */
+    RowTableModel(Object[][] rowData, Object[] columnNames) {
+        this.columnNames = columnNames.clone();
+        this.rows = new Object[Math.max(rowData.length, 8)][];
+        for (Object[] row : rowData)
+            rows[count++] = fit(row);
+    }
+
+
+    @Override
+    public int getRowCount() {
+        return count;
+    }
+
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+
+    @Override
+    public String getColumnName(int column) {
+        return String.valueOf(columnNames[column]);
+    }
+
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return rows[row][column];
+    }
+
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return true;
+    }
+
+
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        Object[] copy = rows[row].clone();
+        copy[column] = value;
+        ensureCapacity(count);
+        rows[row] = copy;
+        fireTableCellUpdated(row, column);
+    }
+
+
+    /**
+     * Insert rows, firing a single event.
+     *
+     * @param index
+     *            - Index the first row is inserted at.
+     * @param rowData
+     *            - Rows to insert. Rows are cut off or padded with nulls to
+     *            the number of columns.
+     */
+    void insertRows(int index, Object[][] rowData) {
+        if (index < 0 || index > count)
+            throw new IndexOutOfBoundsException("Row " + index + " of " + count);
+        if (rowData.length == 0)
+            return;
+
+        ensureCapacity(count + rowData.length);
+        System.arraycopy(rows, index, rows, index + rowData.length, count - index);
+        for (int i = 0; i < rowData.length; i++)
+            rows[index + i] = fit(rowData[i]);
+        count += rowData.length;
+
+        fireTableRowsInserted(index, index + rowData.length - 1);
+    }
+
+
+    /**
+     * Remove rows, firing one event for each run of adjacent rows.
+     *
+     * @param indices
+     *            - Indices of the rows to remove, in increasing order.
+     */
+    void removeRows(int[] indices) {
+        if (indices.length == 0)
+            return;
+        ensureCapacity(count);
+
+        // Remove runs from the end so that earlier indices stay valid.
+        int end = indices.length - 1;
+        while (end >= 0) {
+            int start = end;
+            while (start > 0 && indices[start - 1] == indices[start] - 1)
+                start--;
+
+            int first = indices[start];
+            int last = indices[end];
+            System.arraycopy(rows, last + 1, rows, first, count - last - 1);
+            Arrays.fill(rows, count - (last - first + 1), count, null);
+            count -= last - first + 1;
+            fireTableRowsDeleted(first, last);
+
+            end = start - 1;
+        }
+    }
+
+
+    /**
+     * Move a run of rows, like DefaultTableModel.moveRow.
+     *
+     * @param start
+     *            - Index of the first row to move.
+     * @param end
+     *            - Index of the last row to move.
+     * @param to
+     *            - Index the first row is moved to.
+     */
+    void moveRows(int start, int end, int to) {
+        int shift = to - start;
+        if (shift == 0)
+            return;
+        ensureCapacity(count);
+
+        // Rotate the rows between the moved rows and their destination.
+        int first = Math.min(start, to);
+        int last = Math.max(end, end + shift);
+        Object[][] moved = Arrays.copyOfRange(rows, start, end + 1);
+        if (shift > 0)
+            System.arraycopy(rows, end + 1, rows, start, shift);
+        else
+            System.arraycopy(rows, to, rows, to + moved.length, -shift);
+        System.arraycopy(moved, 0, rows, to, moved.length);
+
+        fireTableRowsUpdated(first, last);
+    }
+
+
+    /**
+     * Get the rows of the table without copying them.
+     *
+     * @return The rows. The array is shared and must not be modified.
+     */
+    Object[][] getSnapshot() {
+        if (rows.length != count)
+            rows = Arrays.copyOf(rows, count);
+        shared = true;
+        return rows;
+    }
+
+
+    /**
+     * Make room for a number of rows, copying the rows array if it is shared
+     * by a snapshot.
+     */
+    private void ensureCapacity(int capacity) {
+        if (shared || capacity > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(capacity, Math.max(rows.length * 2, 8)));
+            shared = false;
+        }
+    }
+
+
+    /**
+     * Cut off or pad a row to the number of columns.
+     */
+    private Object[] fit(Object[] row) {
+        return row.length == columnNames.length ? row.clone() : Arrays.copyOf(row, columnNames.length);
+    }
+}
@@ -0,0 +1,254 @@
+/**
+ * SplitGenerator
+ * Generates a grid as a core css file and a file for each media query, so
+ * that pages can load only the css that applies to the current viewport.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * For a file name of grid.css, the files written are:
+ *
+ * <pre>
+ * grid.css                the bootstrap import, the initial properties and
+ *                         every column type without a minimum width
+ * grid-col-sm.css         the media query of a single column type, for each
+ *                         column type with a minimum width
+ * grid.manifest.json      the files and the media each applies to
+ * </pre>
+ *
+ * The manifest looks like:
+ *
+ * <pre>
+ * {"core":"grid.css","media":[{"file":"grid-col-sm.css","media":"(min-width: 768px)"}]}
+ * </pre>
+ *
+ * so that pages can link each file with a matching media attribute, such as
+ * &lt;link rel="stylesheet" href="grid-col-sm.css" media="(min-width: 768px)"&gt;.
+ * Browsers do not wait for stylesheets whose media do not match before first
+ * painting the page. Each media file keeps its media query, so it is also
+ * correct when linked without one.
+ *
+ * The files are named after their column types, so every column type must
+ * have a different name, ignoring case, and every name must be a plain css
+ * identifier, such as col-sm, which is also a safe file name. The manifest is
+ * written last, so it only lists files that are complete. Files of column
+ * types that were removed since an earlier split are not deleted.
+ *
+ * Media files are listed in the order their column types were entered, which
+ * pages should link them in so that they cascade as in a single file.
+ *
+ * Optimized generators share media queries between column types, so split
+ * output is always rendered without the optimizer.
+ */
+public class SplitGenerator {
+
+    // Extension added to the name of the manifest.
+    public static final String MANIFEST_EXTENSION = ".manifest.json";
+
+    // Character set of the manifest.
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Generator that the parts are rendered with.
+    private final BootstrapGridExtensionFileGenerator generator;
+
+
+    /**
+     * Constructor.
+     *
+     * @param generator
+     *            - Generator that the parts are rendered with.
+     */
+    public SplitGenerator(BootstrapGridExtensionFileGenerator generator) {
+        this.generator = generator;
+    }
+
+
+    /**
+     * Generate the core file, a file for each media query and the manifest.
+     *
+     * @param spec
+     *            - The grid.
+     * @param fileName
+     *            - Name of the core file, which the other files are named
+     *            after.
+     * @return The files written: the core file, then each media file in
+     *         the order its column type was entered, then the manifest.
+     * @throws IllegalArgumentException
+     *             If two column types have the same name or a name is not a
+     *             css identifier. Nothing is written.
+     */
+    public List<File> generate(GridSpec spec, String fileName) throws IOException {
+
+        // Check every name before writing anything.
+        List<Breakpoint> breakpoints = spec.getBreakpoints();
+        Set<String> names = new HashSet<String>();
+        for (Breakpoint breakpoint : breakpoints) {
+            String name = breakpoint.getName();
+            if (!isIdentifier(name))
+                throw new IllegalArgumentException("Column type " + name
+                        + " is not a css identifier, so it cannot name a file");
+            if (!names.add(name.toLowerCase(Locale.ROOT)))
+                throw new IllegalArgumentException("Column type " + name
+                        + " appears more than once, so its file name would not be unique");
+        }
+
+        ByteBuffer[] blocks = renderBlocks(spec);
+
+        long start = System.nanoTime();
+        long bytes = 0;
+        File core = new File(BootstrapGridExtensionFileGenerator.formatFileName(fileName));
+        String base = core.getPath();
+        if (base.endsWith(".css"))
+            base = base.substring(0, base.length() - ".css".length());
+        List<File> files = new ArrayList<File>(breakpoints.size() + 2);
+        files.add(core);
+
+        // The core file holds the header and every column type without a
+        // media query, wherever it was entered.
+        List<ByteBuffer> coreBlocks = new ArrayList<ByteBuffer>();
+        coreBlocks.add(blocks[0]);
+        for (int i = 1; i < blocks.length; i++) {
+            if (breakpoints.get(i - 1).isZeroWidth())
+                coreBlocks.add(blocks[i]);
+        }
+        ByteBuffer[] coreArray = coreBlocks.toArray(new ByteBuffer[coreBlocks.size()]);
+        bytes += remaining(coreArray);
+        AtomicFile.write(core, coreArray);
+
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("{\"core\":");
+        appendJsonString(manifest, core.getName()).append(",\"media\":[");
+
+        boolean firstMedia = true;
+        for (int i = 1; i < blocks.length; i++) {
+            Breakpoint breakpoint = breakpoints.get(i - 1);
+            if (breakpoint.isZeroWidth())
+                continue;
+            File file = new File(base + '-' + breakpoint.getName() + ".css");
+            bytes += blocks[i].remaining();
+            AtomicFile.write(file, blocks[i]);
+            files.add(file);
+
+            if (!firstMedia)
+                manifest.append(',');
+            firstMedia = false;
+            manifest.append("{\"file\":");
+            appendJsonString(manifest, file.getName()).append(",\"media\":");
+            appendJsonString(manifest, "(min-width: " + breakpoint.getMinWidth().trim() + ")").append('}');
+        }
+        manifest.append("]}\n");
+
+        // Write the manifest last, once every file it lists is complete.
+        File manifestFile = new File(base + MANIFEST_EXTENSION);
+        ByteBuffer manifestBytes = ByteBuffer.wrap(manifest.toString().getBytes(UTF_8));
+        bytes += manifestBytes.remaining();
+        AtomicFile.write(manifestFile, manifestBytes);
+        files.add(manifestFile);
+
+        generator.getMetrics().recordWrite(bytes, System.nanoTime() - start);
+        return files;
+    }
+
+
+    /**
+     * Render the header and each column type as separate blocks, in parallel
+     * if the grid is large enough.
+     *
+     * @return The header followed by each column type, in order.
+     */
+    private ByteBuffer[] renderBlocks(GridSpec spec) throws IOException {
+        long start = System.nanoTime();
+        CssFormat f = CssFormat.of(spec.isMinify());
+        String[] percentages = PercentageTable.get(spec.getNumColumns(), generator.getPrecision(), f);
+        Charset charset = BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET;
+
+        ByteBuffer[] blocks;
+        if (generator.isLarge(spec)) {
+            blocks = ParallelGridRenderer.render(generator, spec, f, percentages, charset);
+        } else {
+            List<Breakpoint> breakpoints = spec.getBreakpoints();
+            blocks = new ByteBuffer[breakpoints.size() + 1];
+            for (int i = 0; i < blocks.length; i++) {
+                // Blocks are sized exactly, so their buffers never grow.
+                StylesheetSize size;
+                CssBuffer out;
+                if (i == 0) {
+                    size = StylesheetSize.header(f, spec);
+                    out = new CssBuffer(null, size.charsAsInt());
+                    out.append(f.importRule);
+                    generator.printInitProperties(out, f, spec);
+                } else {
+                    size = StylesheetSize.columnType(f, breakpoints.get(i - 1), percentages);
+                    out = new CssBuffer(null, size.charsAsInt());
+                    generator.printColumnType(out, f, breakpoints.get(i - 1), percentages);
+                }
+                blocks[i] = BootstrapGridExtensionFileGenerator.encodeDirect(out.chars(), charset, size.bytes);
+            }
+        }
+
+        generator.getMetrics().recordGeneration(System.nanoTime() - start);
+        return blocks;
+    }
+
+
+    /**
+     * Check that a name is a css identifier without escapes: ASCII letters,
+     * digits, hyphens and underscores, not starting with a digit or a hyphen
+     * and a digit. Such a name holds no path separators or dots, so it is safe
+     * to use in a file name.
+     */
+    static boolean isIdentifier(String name) {
+        int start = name.startsWith("--") ? 2 : name.startsWith("-") ? 1 : 0;
+        if (start == name.length())
+            return false;
+        if (start < 2 && Character.isDigit(name.charAt(start)))
+            return false;
+        for (int i = start; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= 'A' && c <= 'Z') && !(c >= '0' && c <= '9') && c != '-'
+                    && c != '_')
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * @return Total number of bytes left to read in a set of buffers.
+     */
+    private static long remaining(ByteBuffer[] blocks) {
+        long bytes = 0;
+        for (ByteBuffer block : blocks)
+            bytes += block.remaining();
+        return bytes;
+    }
+
+
+    /**
+     * Append a string as a quoted JSON string.
+     */
+    static StringBuilder appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < ' ')
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        return json.append('"');
+    }
+}
@@ -0,0 +1,332 @@
+/**
+ * StylesheetCache
+ * Caches generated stylesheets by a hash of the grid that produced them, so
+ * that regenerating an unchanged grid does not render or write anything.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Rendered stylesheets are kept in memory by their {@link GridSpec}, least
+ * recently used first, up to a total size limit. If a store directory is
+ * given, they are also saved there under a hash of the spec so that later runs
+ * can reuse them.
+ *
+ * Concurrent lookups of the same uncached grid are coalesced: the first one
+ * renders the stylesheet and the rest wait for it rather than rendering it
+ * again.
+ */
+public class StylesheetCache {
+
+    // Default limit on the total size of stylesheets held in memory.
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Version of the generated output. Changing the generator's output must
+    // change this so that stored stylesheets are not reused.
+    private static final int OUTPUT_VERSION = 4;
+
+    // Hex digits used when printing keys.
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Generator used on cache misses.
+    private final BootstrapGridExtensionFileGenerator generator;
+
+    // Limit on the total size of stylesheets held in memory.
+    private final long maxBytes;
+
+    // Directory stylesheets are stored in, or null if only kept in memory.
+    private final File storeDirectory;
+
+    // Stylesheets by spec, in access order.
+    private final LinkedHashMap<GridSpec, byte[]> entries = new LinkedHashMap<GridSpec, byte[]>(16, 0.75f, true);
+    private long totalBytes;
+
+    // Renders in progress, by spec.
+    private final ConcurrentMap<GridSpec, FutureTask<byte[]>> pending =
+            new ConcurrentHashMap<GridSpec, FutureTask<byte[]>>();
+
+    // Statistics.
+    private long hits, misses;
+
+
+    /**
+     * Constructor.
+     *
+     * @param generator
+     *            - Generator used on cache misses.
+     * @param maxBytes
+     *            - Limit on the total size of stylesheets held in memory.
+     * @param storeDirectory
+     *            - Directory to store stylesheets in, or null to only keep
+     *            them in memory.
+     */
+    public StylesheetCache(BootstrapGridExtensionFileGenerator generator, long maxBytes, File storeDirectory) {
+        this.generator = generator;
+        this.maxBytes = maxBytes;
+        this.storeDirectory = storeDirectory;
+    }
+
+
+    /**
+     * Generate a css file, unless the file already holds the stylesheet for
+     * this grid.
+     *
+     * @return True if the file was written, false if it was already up to
+     *         date.
+     */
+    public boolean generate(GridSpec spec, String fileName) throws IOException {
+
+        byte[] css = render(spec);
+
+        File file = new File(BootstrapGridExtensionFileGenerator.formatFileName(fileName));
+        if (hasContent(file, css))
+            return false;
+
+        AtomicFile.write(file, ByteBuffer.wrap(css));
+        return true;
+    }
+
+
+    /**
+     * Get the stylesheet for a grid, rendering it only if it is not cached.
+     *
+     * @return The stylesheet, encoded with the generator's default charset.
+     *         The array must not be modified.
+     */
+    public byte[] render(final GridSpec spec) throws IOException {
+
+        byte[] css = lookup(spec);
+        if (css != null)
+            return css;
+
+        // Render the stylesheet, unless another thread already is.
+        FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws IOException {
+                byte[] css = renderUncached(spec);
+                store(spec, css);
+                return css;
+            }
+        });
+        FutureTask<byte[]> running = pending.putIfAbsent(spec, task);
+        if (running == null) {
+            running = task;
+            try {
+                task.run();
+            } finally {
+                pending.remove(spec, task);
+            }
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for stylesheet");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+
+    /**
+     * Render a stylesheet with the generator.
+     */
+    private byte[] renderUncached(GridSpec spec) throws IOException {
+
+        // Size the stylesheet up front where that does not mean rendering it.
+        ByteArrayOutputStream out = new ByteArrayOutputStream(generator.isOptimized() ? 8192 : (int) generator
+                .computeSize(spec));
+        generator.generate(spec, out, BootstrapGridExtensionFileGenerator.DEFAULT_CHARSET);
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Compute the stored name of a grid: a hash of a canonical form of
+     * everything that affects the generated stylesheet, including the
+     * generator settings.
+     *
+     * @return The key as a hex string.
+     */
+    public String key(GridSpec spec) {
+
+        // Every string is prefixed with its length so that no two different
+        // grids share a canonical form.
+        StringBuilder canonical = new StringBuilder();
+        canonical.append(OUTPUT_VERSION).append(';').append(generator.getPrecision()).append(';');
+        canonical.append(generator.isOptimized()).append(';');
+        canonical.append(spec.getNumColumns()).append(';').append(spec.isMinify()).append(';');
+        canonical.append(spec.getProperties().size()).append('[');
+        for (Property property : spec.getProperties())
+            appendString(appendString(canonical, property.getName()), property.getValue());
+        canonical.append(']').append(spec.getBreakpoints().size()).append('[');
+        for (Breakpoint breakpoint : spec.getBreakpoints())
+            appendString(appendString(canonical, breakpoint.getName()), breakpoint.getMinWidth());
+        canonical.append(']');
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+        byte[] hash = digest.digest(canonical.toString().getBytes(Charset.forName("UTF-8")));
+
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX[(hash[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+
+    /**
+     * Append a string prefixed with its length.
+     */
+    private static StringBuilder appendString(StringBuilder canonical, String value) {
+        return canonical.append(value.length()).append(':').append(value);
+    }
+
+
+    /**
+     * Look up a stylesheet in memory and then in the store directory.
+     *
+     * @return The stylesheet, or null if it is not cached.
+     */
+    private byte[] lookup(GridSpec spec) throws IOException {
+        synchronized (this) {
+            byte[] css = entries.get(spec);
+            if (css != null) {
+                hits++;
+                generator.getMetrics().recordCacheLookup(true);
+                return css;
+            }
+        }
+
+        // Fall back to the store directory.
+        if (storeDirectory != null) {
+            File file = new File(storeDirectory, key(spec) + ".css");
+            if (file.isFile()) {
+                byte[] css = readFile(file);
+                synchronized (this) {
+                    hits++;
+                    put(spec, css);
+                }
+                generator.getMetrics().recordCacheLookup(true);
+                return css;
+            }
+        }
+
+        synchronized (this) {
+            misses++;
+        }
+        generator.getMetrics().recordCacheLookup(false);
+        return null;
+    }
+
+
+    /**
+     * Save a newly rendered stylesheet in memory and in the store directory.
+     */
+    private void store(GridSpec spec, byte[] css) throws IOException {
+        synchronized (this) {
+            put(spec, css);
+        }
+
+        if (storeDirectory != null) {
+            // Concurrent readers never see part of a stylesheet.
+            AtomicFile.write(new File(storeDirectory, key(spec) + ".css"), ByteBuffer.wrap(css));
+        }
+    }
+
+
+    /**
+     * Add a stylesheet to memory, evicting the least recently used
+     * stylesheets to stay within the size limit. Must hold the lock.
+     */
+    private void put(GridSpec spec, byte[] css) {
+        if (css.length > maxBytes)
+            return;
+
+        byte[] old = entries.put(spec, css);
+        if (old != null)
+            totalBytes -= old.length;
+        totalBytes += css.length;
+
+        Iterator<Map.Entry<GridSpec, byte[]>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+
+    /**
+     * Check whether a file already holds exactly the given content.
+     */
+    static boolean hasContent(File file, byte[] content) throws IOException {
+        if (!file.isFile() || file.length() != content.length)
+            return false;
+        return Arrays.equals(readFile(file), content);
+    }
+
+
+    /**
+     * Read the whole of a file.
+     */
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] content = new byte[(int) in.length()];
+            in.readFully(content);
+            return content;
+        } finally {
+            in.close();
+        }
+    }
+
+
+    /**
+     * @return Number of lookups that found a cached stylesheet.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    /**
+     * @return Number of lookups that had to render a stylesheet.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * StylesheetSize
+ * Computes the exact size of a stylesheet from its grid, without rendering
+ * it.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.util.List;
+
+/**
+ * Sizes are counted in both characters and UTF-8 bytes. Each method mirrors
+ * the generator method that prints the same part of the stylesheet, so the
+ * two must be changed together. Optimized stylesheets cannot be measured this
+ * way, as their shape depends on which rules the optimizer drops.
+ */
+final class StylesheetSize {
+
+    // Column sub-types, the property they set and the first class number, as
+    // printed by BootstrapGridExtensionFileGenerator.printColumnProperties.
+    private static final String[] SUB_TYPES = { "", "pull-", "push-", "offset-" };
+    private static final String[] PROPERTIES = { "width", "right", "left", "margin-left" };
+    private static final int[] STARTS = { 1, 0, 0, 0 };
+
+    // Number of characters and UTF-8 bytes.
+    long chars, bytes;
+
+
+    /**
+     * Add a string some number of times.
+     */
+    private StylesheetSize add(String str, long times) {
+        chars += str.length() * times;
+        bytes += utf8Length(str) * times;
+        return this;
+    }
+
+
+    /**
+     * Add a string.
+     */
+    private StylesheetSize add(String str) {
+        return add(str, 1);
+    }
+
+
+    /**
+     * Add the characters of text that is known to be ASCII.
+     */
+    private StylesheetSize addAscii(long length) {
+        chars += length;
+        bytes += length;
+        return this;
+    }
+
+
+    /**
+     * Add another size.
+     */
+    StylesheetSize add(StylesheetSize other) {
+        chars += other.chars;
+        bytes += other.bytes;
+        return this;
+    }
+
+
+    /**
+     * @return Number of characters as an int, for sizing buffers.
+     * @throws IllegalStateException
+     *             If there are too many characters to hold in memory.
+     */
+    int charsAsInt() {
+        if (chars > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Stylesheet is too large to hold in memory: " + chars + " characters");
+        return (int) chars;
+    }
+
+
+    /**
+     * Compute the size of a whole stylesheet.
+     * 
+     * @param f
+     *            - Formatting strings.
+     * @param spec
+     *            - The grid.
+     * @param percentages
+     *            - Rendered percentage of each number of columns.
+     * @return The size.
+     */
+    static StylesheetSize grid(CssFormat f, GridSpec spec, String[] percentages) {
+        StylesheetSize size = header(f, spec);
+        for (Breakpoint breakpoint : spec.getBreakpoints())
+            size.add(columnType(f, breakpoint, percentages));
+        return size;
+    }
+
+
+    /**
+     * Compute the size of the bootstrap import and initial properties.
+     */
+    static StylesheetSize header(CssFormat f, GridSpec spec) {
+        StylesheetSize size = new StylesheetSize().add(f.importRule);
+        List<Breakpoint> breakpoints = spec.getBreakpoints();
+        List<Property> properties = spec.getProperties();
+        int num = spec.getNumColumns();
+
+        // Selectors: .name-i for every column and type, separated by commas.
+        long selectors = (long) num * breakpoints.size();
+        for (Breakpoint breakpoint : breakpoints)
+            size.add(breakpoint.getName(), num).addAscii(2L * num + digitSum(num));
+        size.addAscii((selectors - 1) * (1 + f.newLine.length()));
+        size.add(f.space).addAscii(1).add(f.newLine);
+
+        // Declarations.
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            size.add(f.tab).add(f.name(property.getName())).addAscii(1).add(f.space).add(f.value(property
+                    .getValue()));
+            size.add(i < properties.size() - 1 ? ";" : f.semiColon).add(f.newLine);
+        }
+
+        return size.addAscii(1).add(f.newLine, 2);
+    }
+
+
+    /**
+     * Compute the size of the classes of a single column type.
+     */
+    static StylesheetSize columnType(CssFormat f, Breakpoint breakpoint, String[] percentages) {
+        StylesheetSize size = new StylesheetSize();
+        boolean indented = !breakpoint.isZeroWidth();
+        int num = percentages.length - 1;
+
+        // Media query.
+        if (indented)
+            size.add(f.newLine).add("@media").add(f.space).add("(min-width:").add(f.space)
+                    .add(f.value(breakpoint.getMinWidth())).addAscii(1).add(f.space).addAscii(1).add(f.newLine)
+                    .addAscii(1).add(f.newLine);
+
+        // Sum of the lengths of all percentages, which are ASCII.
+        long percentageLength = 0;
+        for (String percentage : percentages)
+            percentageLength += percentage.length();
+
+        String indent = indented ? f.tab : "";
+        for (int t = 0; t < SUB_TYPES.length; t++) {
+            long rules = num + 1 - STARTS[t];
+
+            // Each rule is:
+            // newLine indent .name-subType-i space { newLine
+            // indent tab property: space percentage semiColon newLine
+            // indent } newLine
+            size.add(f.newLine, 4 * rules).add(indent, 3 * rules).add(breakpoint.getName(), rules);
+            size.addAscii(rules * (2 + SUB_TYPES[t].length() + 1 + PROPERTIES[t].length() + 1 + 1));
+            size.add(f.space, 2 * rules).add(f.tab, rules).add(f.semiColon, rules);
+            size.addAscii(digitSum(num) + (STARTS[t] == 0 ? 1 : 0));
+            size.addAscii(percentageLength - (STARTS[t] == 0 ? 0 : percentages[0].length()));
+        }
+
+        return size;
+    }
+
+
+    /**
+     * @return Total number of decimal digits of the numbers from 1 to n.
+     */
+    static long digitSum(int n) {
+        long sum = 0;
+        long digits = 1;
+        for (long low = 1; low <= n; low *= 10, digits++)
+            sum += (Math.min(n, low * 10 - 1) - low + 1) * digits;
+        return sum;
+    }
+
+
+    /**
+     * @return Number of bytes a string takes in UTF-8. Unpaired surrogates
+     *         count as the single replacement byte a writer substitutes.
+     */
+    static long utf8Length(String str) {
+        long length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < str.length()
+                    && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -10,16 +10,29 @@ package com.adamheins.bootstrap_grid_extension_generator;
 
 import java.awt.BorderLayout;
 import java.awt.Dimension;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
 
 import javax.swing.Box;
 import javax.swing.JButton;
+import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.TransferHandler;
+import javax.swing.UIManager;
+import javax.swing.event.TableModelListener;
 
+/**
+ * Rows can be pasted into the table as CSV or JSON, see {@link TableText},
+ * and selected rows are copied as CSV. Pasted rows are inserted after the
+ * selection, or at the end if nothing is selected.
+ */
 public class TablePanel extends JPanel implements ActionListener {
 
     // Serial Version UID.
@@ -29,6 +42,9 @@ public class TablePanel extends JPanel implements ActionListener {
     private JScrollPane scrollPane;
     private JTable table;
 
+    // Data of the table.
+    private RowTableModel model;
+
     // Button panel.
     private JPanel buttonPanel;
 
@@ -53,8 +69,10 @@ public class TablePanel extends JPanel implements ActionListener {
         setLayout(new BorderLayout());
 
         // Set up the table.
-        table = new JTable(new DefaultTableModel(rowData, colNames));
+        model = new RowTableModel(rowData, colNames);
+        table = new JTable(model);
         table.getTableHeader().setReorderingAllowed(false);
+        table.setTransferHandler(new RowTransferHandler());
         scrollPane = new JScrollPane(table);
         Dimension d = table.getPreferredSize();
         scrollPane.setPreferredSize(new Dimension(d.width, table.getRowHeight() * 4 + 23));
@@ -90,12 +108,60 @@ public class TablePanel extends JPanel implements ActionListener {
     }
 
 
+    /**
+     * Copies selected rows as CSV and pastes CSV or JSON rows.
+     */
+    private class RowTransferHandler extends TransferHandler {
+
+        // Serial Version UID.
+        private static final long serialVersionUID = -2215618335893893812L;
+
+        @Override
+        public int getSourceActions(JComponent c) {
+            return COPY;
+        }
+
+        @Override
+        protected Transferable createTransferable(JComponent c) {
+            int[] selected = table.getSelectedRows();
+            if (selected.length == 0)
+                return null;
+            Object[][] rows = new Object[selected.length][];
+            for (int i = 0; i < selected.length; i++) {
+                rows[i] = new Object[model.getColumnCount()];
+                for (int j = 0; j < rows[i].length; j++)
+                    rows[i][j] = model.getValueAt(selected[i], j);
+            }
+            return new StringSelection(TableText.toCsv(rows));
+        }
+
+        @Override
+        public boolean canImport(TransferSupport support) {
+            return support.isDataFlavorSupported(DataFlavor.stringFlavor);
+        }
+
+        @Override
+        public boolean importData(TransferSupport support) {
+            if (!canImport(support))
+                return false;
+            try {
+                importText((String) support.getTransferable().getTransferData(DataFlavor.stringFlavor));
+                return true;
+            } catch (IllegalArgumentException e) {
+                UIManager.getLookAndFeel().provideErrorFeedback(table);
+            } catch (UnsupportedFlavorException e) {
+                // Checked by canImport.
+            } catch (IOException e) {
+                UIManager.getLookAndFeel().provideErrorFeedback(table);
+            }
+            return false;
+        }
+    }
+
+
     @Override
     public void actionPerformed(ActionEvent e) {
 
-        // Get the table model.
-        DefaultTableModel model = (DefaultTableModel) table.getModel();
-
         // Respond to Add Row button.
         if (e.getSource() == addButton) {      
             
@@ -105,12 +171,12 @@ public class TablePanel extends JPanel implements ActionListener {
             // No rows are selected.
             // Add new row at end of table.
             if (row == -1) {
-                model.addRow(new Object[table.getColumnCount()]);
+                model.insertRows(model.getRowCount(), new Object[][] { new Object[table.getColumnCount()] });
                 table.setRowSelectionInterval(model.getRowCount() - 1, model.getRowCount() - 1);
                 
             // Otherwise, insert after last selected row.
             } else {
-                model.insertRow(row, new Object[table.getColumnCount()]);
+                model.insertRows(row, new Object[][] { new Object[table.getColumnCount()] });
                 table.setRowSelectionInterval(row, row);
             }
            
@@ -118,9 +184,11 @@ public class TablePanel extends JPanel implements ActionListener {
         } else if (e.getSource() == removeButton) {
             int[] rows = table.getSelectedRows();
 
+            if (rows.length == 0)
+                return;
+
             // Remove selected rows.
-            for (int i = 0; i < rows.length; i++)
-                model.removeRow(rows[0]);
+            model.removeRows(rows);
 
             // Select row immediately after removed row, or previous row if it
             // was the last in the table.
@@ -139,8 +207,8 @@ public class TablePanel extends JPanel implements ActionListener {
 
             // Move selected rows upward as long as rows are selected and below
             // the top row.
-            if (selRows[0] > 0) {
-                model.moveRow(selRows[0], selRows[selRows.length - 1], selRows[0] - 1);
+            if (selRows.length > 0 && selRows[0] > 0) {
+                model.moveRows(selRows[0], selRows[selRows.length - 1], selRows[0] - 1);
                 table.setRowSelectionInterval(selRows[0] - 1, selRows[selRows.length - 1] - 1);
             }
 
@@ -152,8 +220,8 @@ public class TablePanel extends JPanel implements ActionListener {
 
             // Move selected rows downward as long as rows are selected and
             // above the bottom row.
-            if (selRows[selRows.length - 1] != -1 && selRows[selRows.length - 1] < model.getRowCount() - 1) {
-                model.moveRow(selRows[0], selRows[selRows.length - 1], selRows[0] + 1);
+            if (selRows.length > 0 && selRows[selRows.length - 1] < model.getRowCount() - 1) {
+                model.moveRows(selRows[0], selRows[selRows.length - 1], selRows[0] + 1);
                 table.setRowSelectionInterval(selRows[0] + 1, selRows[selRows.length - 1] + 1);
             }
         }
@@ -166,18 +234,75 @@ public class TablePanel extends JPanel implements ActionListener {
      * @return A 2-D array of the table data.
      */
     public Object[][] getRowData() {
-        int columnCount = table.getColumnCount();
-        int rowCount = table.getRowCount();
-
-        // Initialize array to store table data.
-        Object rowData[][] = new Object[rowCount][columnCount];
+        Object[][] snapshot = model.getSnapshot();
 
-        // Read data out of table into array.
-        for (int i = 0; i < rowCount; i++) {
-            for (int j = 0; j < columnCount; j++)
-                rowData[i][j] = table.getValueAt(i, j);
-        }
+        // Copy the rows so the caller may change them.
+        Object rowData[][] = new Object[snapshot.length][];
+        for (int i = 0; i < snapshot.length; i++)
+            rowData[i] = snapshot[i].clone();
 
         return rowData;
     }
+
+
+    /**
+     * Get the data contained in the table without copying it. The snapshot is
+     * not affected by later changes to the table, but must not be modified.
+     * 
+     * @return A 2-D array of the table data, shared with the table.
+     */
+    public Object[][] getSnapshot() {
+        return model.getSnapshot();
+    }
+
+
+    /**
+     * Insert rows read from CSV or JSON text after the selected rows, or at
+     * the end if no rows are selected, and select them. See
+     * {@link TableText} for the formats read.
+     * 
+     * @param text
+     *            - Rows as CSV or JSON.
+     * @return The number of rows inserted.
+     * @throws IllegalArgumentException
+     *             If the text is malformed.
+     */
+    public int importText(String text) {
+        Object[][] rows = TableText.parse(text);
+        if (rows.length == 0)
+            return 0;
+
+        int row = table.getSelectedRowCount() == 0 ? model.getRowCount() : table.getSelectionModel()
+                .getMaxSelectionIndex() + 1;
+        model.insertRows(row, rows);
+        table.setRowSelectionInterval(row, row + rows.length - 1);
+        return rows.length;
+    }
+
+
+    /**
+     * @return All rows of the table as CSV.
+     */
+    public String exportCsv() {
+        return TableText.toCsv(model.getSnapshot());
+    }
+
+
+    /**
+     * @return All rows of the table as a JSON array of arrays.
+     */
+    public String exportJson() {
+        return TableText.toJson(model.getSnapshot());
+    }
+
+
+    /**
+     * Add a listener to be notified whenever the table data changes.
+     * 
+     * @param listener
+     *            - The listener to add.
+     */
+    public void addTableModelListener(TableModelListener listener) {
+        table.getModel().addTableModelListener(listener);
+    }
 }
@@ -0,0 +1,383 @@
+/**
+ * TableText
+ * Reads and writes table rows as CSV or JSON text, for pasting rows into and
+ * copying rows out of the tables.
+ */
+
+package com.adamheins.bootstrap_grid_extension_generator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Text is read as JSON if it starts with [ or {, and as CSV otherwise. CSV
+ * cells are separated by commas, or by tabs if the first line has any, as
+ * spreadsheets copy them, and may be quoted with double quotes. JSON may be
+ * an array of rows, each an array of cells or an object whose values are the
+ * cells, or an object mapping the first cell of each row to the second, such
+ * as a set of design tokens:
+ *
+ * <pre>
+ * [["col-xs", "0px"], ["col-sm", "768px"]]
+ * {"col-xs": "0px", "col-sm": {"value": "768px"}}
+ * </pre>
+ *
+ * Values that are objects holding a value or $value are read as that value.
+ * Numbers and other literals are read as their text.
+ */
+final class TableText {
+
+    /**
+     * Not instantiable.
+     */
+    private TableText() {
+    }
+
+
+    /**
+     * Read rows from text.
+     *
+     * @param text
+     *            - CSV or JSON text.
+     * @return The rows read. Blank lines are skipped.
+     * @throws IllegalArgumentException
+     *             If the text is malformed.
+     */
+    static Object[][] parse(String text) {
+        String trimmed = text.trim();
+        if (trimmed.startsWith("[") || trimmed.startsWith("{"))
+            return parseJson(trimmed);
+        return parseCsv(text);
+    }
+
+
+    /**
+     * Read rows from CSV text.
+     */
+    static Object[][] parseCsv(String text) {
+        int firstLine = text.indexOf('\n');
+        char separator = text.substring(0, firstLine < 0 ? text.length() : firstLine).indexOf('\t') >= 0 ? '\t'
+                : ',';
+
+        List<Object[]> rows = new ArrayList<Object[]>();
+        List<String> row = new ArrayList<String>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        boolean blank = true;
+
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : '\n';
+
+            if (quoted) {
+                // A doubled quote inside quotes is a literal quote.
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                    wasQuoted = true;
+                } else if (i < text.length()) {
+                    cell.append(c);
+                } else {
+                    throw new IllegalArgumentException("Unterminated quote");
+                }
+            } else if (c == '"' && cell.toString().trim().isEmpty()) {
+                cell.setLength(0);
+                quoted = true;
+                blank = false;
+            } else if (c == separator) {
+                row.add(wasQuoted ? cell.toString() : cell.toString().trim());
+                cell.setLength(0);
+                wasQuoted = false;
+                blank = false;
+            } else if (c == '\n') {
+                row.add(wasQuoted ? cell.toString() : cell.toString().trim());
+                cell.setLength(0);
+                wasQuoted = false;
+                if (!blank || !row.get(0).isEmpty())
+                    rows.add(row.toArray());
+                row.clear();
+                blank = true;
+            } else if (c != '\r' && !wasQuoted) {
+                // Anything after the closing quote of a cell is ignored.
+                cell.append(c);
+            }
+        }
+        return rows.toArray(new Object[rows.size()][]);
+    }
+
+
+    /**
+     * Read rows from JSON text.
+     */
+    static Object[][] parseJson(String text) {
+        return rows(readJson(text));
+    }
+
+
+    /**
+     * Read a single JSON value that makes up the whole of a text.
+     *
+     * @param text
+     *            - JSON text.
+     * @return The value: objects as maps, arrays as lists, and strings and
+     *         other literals as strings. Null is read as null.
+     * @throws IllegalArgumentException
+     *             If the text is malformed.
+     */
+    static Object readJson(String text) {
+        JsonReader reader = new JsonReader(text);
+        Object value = reader.readValue();
+        reader.skipSpace();
+        if (reader.pos < text.length())
+            throw reader.error("unexpected text after the end");
+        return value;
+    }
+
+
+    /**
+     * Read a JSON value as table rows: an array of rows, each an array of
+     * cells or an object whose values are the cells, or an object mapping
+     * the first cell of each row to the second.
+     *
+     * @param value
+     *            - A value read by {@link #readJson}.
+     * @return The rows.
+     * @throws IllegalArgumentException
+     *             If the value is not an array or object.
+     */
+    static Object[][] rows(Object value) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (item instanceof List) {
+                    List<?> cells = (List<?>) item;
+                    Object[] row = new Object[cells.size()];
+                    for (int i = 0; i < row.length; i++)
+                        row[i] = cell(cells.get(i));
+                    rows.add(row);
+                } else if (item instanceof Map) {
+                    Map<?, ?> cells = (Map<?, ?>) item;
+                    List<Object> row = new ArrayList<Object>(cells.size());
+                    for (Object cell : cells.values())
+                        row.add(cell(cell));
+                    rows.add(row.toArray());
+                } else {
+                    rows.add(new Object[] { cell(item) });
+                }
+            }
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                rows.add(new Object[] { entry.getKey(), cell(entry.getValue()) });
+        } else {
+            throw new IllegalArgumentException("Expected an array or object of rows");
+        }
+        return rows.toArray(new Object[rows.size()][]);
+    }
+
+
+    /**
+     * Read a JSON value as a table cell.
+     */
+    private static String cell(Object value) {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            if (map.containsKey("value"))
+                return cell(map.get("value"));
+            if (map.containsKey("$value"))
+                return cell(map.get("$value"));
+            throw new IllegalArgumentException("Expected a cell value but found an object");
+        }
+        if (value instanceof List)
+            throw new IllegalArgumentException("Expected a cell value but found an array");
+        return (String) value;
+    }
+
+
+    /**
+     * Write rows as CSV text, quoting cells where needed.
+     *
+     * @param rows
+     *            - Rows to write. Null cells are written as empty cells.
+     * @return The text, one line per row.
+     */
+    static String toCsv(Object[][] rows) {
+        StringBuilder csv = new StringBuilder();
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0)
+                    csv.append(',');
+                String cell = row[i] == null ? "" : row[i].toString();
+                if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0
+                        || !cell.equals(cell.trim()))
+                    csv.append('"').append(cell.replace("\"", "\"\"")).append('"');
+                else
+                    csv.append(cell);
+            }
+            csv.append('\n');
+        }
+        return csv.toString();
+    }
+
+
+    /**
+     * Write rows as a JSON array of arrays.
+     *
+     * @param rows
+     *            - Rows to write. Null cells are written as null.
+     * @return The text.
+     */
+    static String toJson(Object[][] rows) {
+        StringBuilder json = new StringBuilder();
+        json.append('[');
+        for (int r = 0; r < rows.length; r++) {
+            if (r > 0)
+                json.append(',');
+            json.append('[');
+            for (int i = 0; i < rows[r].length; i++) {
+                if (i > 0)
+                    json.append(',');
+                if (rows[r][i] == null)
+                    json.append("null");
+                else
+                    SplitGenerator.appendJsonString(json, rows[r][i].toString());
+            }
+            json.append(']');
+        }
+        return json.append(']').toString();
+    }
+
+
+    /**
+     * Reads JSON values: objects as maps, arrays as lists, and strings and
+     * other literals as strings. Null is read as null.
+     */
+    private static final class JsonReader {
+
+        private final String text;
+        int pos;
+
+        JsonReader(String text) {
+            this.text = text;
+        }
+
+        Object readValue() {
+            skipSpace();
+            if (pos == text.length())
+                throw error("unexpected end");
+
+            char c = text.charAt(pos);
+            if (c == '{') {
+                Map<String, Object> map = new LinkedHashMap<String, Object>();
+                pos++;
+                if (!consume('}')) {
+                    do {
+                        skipSpace();
+                        if (pos == text.length() || text.charAt(pos) != '"')
+                            throw error("expected a key");
+                        String key = readString();
+                        if (!consume(':'))
+                            throw error("expected :");
+                        map.put(key, readValue());
+                    } while (consume(','));
+                    if (!consume('}'))
+                        throw error("expected , or }");
+                }
+                return map;
+            }
+            if (c == '[') {
+                List<Object> list = new ArrayList<Object>();
+                pos++;
+                if (!consume(']')) {
+                    do {
+                        list.add(readValue());
+                    } while (consume(','));
+                    if (!consume(']'))
+                        throw error("expected , or ]");
+                }
+                return list;
+            }
+            if (c == '"')
+                return readString();
+
+            // Numbers and literals run until the next delimiter.
+            int start = pos;
+            while (pos < text.length() && ",:]}".indexOf(text.charAt(pos)) < 0
+                    && !Character.isWhitespace(text.charAt(pos)))
+                pos++;
+            if (pos == start)
+                throw error("expected a value");
+            String literal = text.substring(start, pos);
+            return literal.equals("null") ? null : literal;
+        }
+
+        String readString() {
+            StringBuilder s = new StringBuilder();
+            pos++;
+            while (true) {
+                if (pos >= text.length())
+                    throw error("unterminated string");
+                char c = text.charAt(pos++);
+                if (c == '"')
+                    return s.toString();
+                if (c != '\\') {
+                    s.append(c);
+                    continue;
+                }
+                if (pos >= text.length())
+                    throw error("unterminated string");
+                char e = text.charAt(pos++);
+                switch (e) {
+                case 'b':
+                    s.append('\b');
+                    break;
+                case 'f':
+                    s.append('\f');
+                    break;
+                case 'n':
+                    s.append('\n');
+                    break;
+                case 'r':
+                    s.append('\r');
+                    break;
+                case 't':
+                    s.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length())
+                        throw error("bad escape");
+                    try {
+                        s.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("bad escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    s.append(e);
+                }
+            }
+        }
+
+        boolean consume(char c) {
+            skipSpace();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos)))
+                pos++;
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Malformed JSON at character " + (pos + 1) + ": " + message);
+        }
+    }
+}